@@ -0,0 +1,69 @@
+#!/bin/sh
+# Compares the native executable with the JVM build on the inputs of
+# TimeConversionUtilTest (scripts/native-smoke-corpus.txt).
+#
+# usage: native-smoke-test.sh [native executable] [jar]
+#
+# Relative inputs ("+2h", "Tomorrow") depend on the current minute, so the
+# JVM build runs before and after the native one and the native output has to
+# match one of the two runs.
+
+cd "$(dirname "$0")/.." || exit 1
+
+NATIVE=${1:-target/twi}
+JAR=${2:-target/twi-1.0.jar}
+CORPUS=scripts/native-smoke-corpus.txt
+# the corpus is written for the time zone the unit tests run in
+TZ=${TZ:-Asia/Kolkata}
+export TZ
+
+for file in "$NATIVE" "$JAR" "$CORPUS"; do
+	if [ ! -f "$file" ]; then
+		echo "$file not found, build with mvn -Pnative package first" >&2
+		exit 1
+	fi
+done
+
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+FAILURES=0
+
+# run <output file> <command...>: stdout and exit code, STDERR carries log
+# lines with time stamps and is left out
+run() {
+	out=$1
+	shift
+	"$@" > "$out" 2> /dev/null
+	echo "exit $?" >> "$out"
+}
+
+check() {
+	name=$1
+	shift
+	run "$WORK/jvm-before" java -jar "$JAR" "$@"
+	run "$WORK/native" "$NATIVE" "$@"
+	run "$WORK/jvm-after" java -jar "$JAR" "$@"
+	if cmp -s "$WORK/native" "$WORK/jvm-before" || cmp -s "$WORK/native" "$WORK/jvm-after"; then
+		echo "ok      $name"
+	else
+		echo "FAILED  $name"
+		diff "$WORK/jvm-after" "$WORK/native"
+		FAILURES=$((FAILURES + 1))
+	fi
+}
+
+check "help" --help
+check "version" --version
+check "corpus" --file "$CORPUS" --output-format json
+check "corpus time zones" --file "$CORPUS" --output-format json -z Asia/Singapore -z SGT -z Europe/London -z UTC
+check "corpus offsets" --file "$CORPUS" --output-format json -o +8 -o -8.5 -o +5:30 -o +8:60
+check "corpus format" --file "$CORPUS" --output-format csv -f "dd-MM-yyyy HH:mm" -z Asia/Singapore -o +8 --distinct
+check "single input" "August 15th 2024 3:30 PM" -z SGT -o +5.75
+check "invalid offset" "8 PM" -o +123
+check "scan" --scan "$CORPUS" --output-format json -z UTC
+
+if [ "$FAILURES" -gt 0 ]; then
+	echo "$FAILURES native smoke test(s) failed" >&2
+	exit 1
+fi
+echo "native executable matches the JVM build"
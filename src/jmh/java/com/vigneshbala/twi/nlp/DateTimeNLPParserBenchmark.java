@@ -0,0 +1,80 @@
+package com.vigneshbala.twi.nlp;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vigneshbala.twi.model.ParserResult;
+import com.vigneshbala.twi.util.ReferenceDataUtil;
+
+/**
+ * Throughput of {@link DateTimeNLPParser#parse} for each grammar family of the
+ * README table, and of the time zone and country extraction on their own.
+ * 
+ * (c) 2024 Vignesh Balasubramanian
+ * 
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateTimeNLPParserBenchmark {
+
+	private static final String FORMAT = "dd-MM-yyyy hh:mm:ss a";
+
+	// the last four name a time zone or a country, the others measure the
+	// extraction's early return for input without one
+	@Param({ "Thursday", "day after tomorrow", "this past Monday", "15th August 2025", "Aug 15th 2026 3:30 PM",
+			"5:30 AM", "21 Hours", "+2.5h", "-10d", "Monday 5 PM SGT", "8 pm Asia/Singapore", "tomorrow 9am india",
+			"5 pm united states" })
+	public String input;
+
+	private final DateTimeNLPParser parser = new DateTimeNLPParser();
+	private ZonedDateTime baseTime;
+	private List<DateTimeToken> tokens;
+
+	@Setup
+	public void setup() throws Exception {
+		ReferenceDataUtil.loadCountryData();
+		baseTime = LocalDate.of(2024, 7, 17).atStartOfDay(ZoneId.systemDefault());
+		tokens = DateTimeTokenizer.tokenize(input.toLowerCase());
+	}
+
+	@Benchmark
+	public ParserResult parse() throws Exception {
+		return parser.parse(input, baseTime, FORMAT);
+	}
+
+	@Benchmark
+	public List<DateTimeToken> tokenize() {
+		return DateTimeTokenizer.tokenize(input.toLowerCase());
+	}
+
+	@Benchmark
+	public ZoneId extractTimeZone() throws Exception {
+		return DateTimeNLPParser.extractTimeZone(input, tokens);
+	}
+
+	@Benchmark
+	public Object extractCountry() throws Exception {
+		return DateTimeNLPParser.extractCountry(tokens);
+	}
+
+}
@@ -0,0 +1,90 @@
+package com.vigneshbala.twi.util;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vigneshbala.twi.model.ParserResult;
+
+/**
+ * Throughput of the conversion paths of {@link TimeConversionUtil} and of the
+ * output formatting, measured against an already parsed result. The
+ * convert... benchmarks apply a precomputed {@link ConversionPlan}, planAndApply
+ * resolves the plan on every call as a single conversion does.
+ * 
+ * (c) 2024 Vignesh Balasubramanian
+ * 
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeConversionBenchmark {
+
+	private static final String FORMAT = "dd/MM/yyyy hh:mm:ss a Z";
+	private static final String[] ZONES = { "SGT", "Asia/Kolkata", "Europe/London", "America/New_York" };
+	private static final String[] OFFSETS = { "+8", "+5:30", "-8", "+0" };
+	private static final String[] COUNTRIES = { "in", "us", "australia" };
+
+	private ParserResult parserResult;
+	private ConversionPlan timeZonePlan;
+	private ConversionPlan offsetPlan;
+	private ConversionPlan countryPlan;
+
+	@Setup
+	public void setup() throws Exception {
+		ReferenceDataUtil.loadCountryData();
+		parserResult = new ParserResult(FORMAT);
+		parserResult.setToDateTime(LocalDate.of(2024, 7, 23).atTime(20, 0).atZone(ZoneId.systemDefault()));
+		timeZonePlan = ConversionPlan.of(FORMAT, ZONES, null, null);
+		offsetPlan = ConversionPlan.of(FORMAT, null, null, OFFSETS);
+		countryPlan = ConversionPlan.of(FORMAT, null, COUNTRIES, null);
+	}
+
+	@Benchmark
+	public String convertTimeZones() throws Exception {
+		return timeZonePlan.apply(parserResult.getToDateTime());
+	}
+
+	@Benchmark
+	public String convertOffsets() throws Exception {
+		return offsetPlan.apply(parserResult.getToDateTime());
+	}
+
+	@Benchmark
+	public String convertCountries() throws Exception {
+		return countryPlan.apply(parserResult.getToDateTime());
+	}
+
+	@Benchmark
+	public String planAndApply() throws Exception {
+		return ConversionPlan.of(FORMAT, ZONES, null, OFFSETS).apply(parserResult.getToDateTime());
+	}
+
+	@Benchmark
+	public String prettyPrint() {
+		return parserResult.getPrettyPrintedResult();
+	}
+
+	@Benchmark
+	public String convertDateTime() throws Exception {
+		ZonedDateTime baseTime = parserResult.getToDateTime();
+		return TimeConversionUtil.convertDateTime("Tuesday 8 PM", FORMAT, baseTime, ZONES, null, OFFSETS);
+	}
+
+}
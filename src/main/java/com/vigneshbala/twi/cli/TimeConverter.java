@@ -1,14 +1,43 @@
 package com.vigneshbala.twi.cli;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.concurrent.Callable;
 
+import org.apache.commons.lang3.StringUtils;
+
+import com.vigneshbala.twi.model.BatchStatistics;
+import com.vigneshbala.twi.nlp.DateTimeNLPParser;
+import com.vigneshbala.twi.nlp.ParseCache;
+import com.vigneshbala.twi.server.DaemonClient;
+import com.vigneshbala.twi.server.DaemonServer;
+import com.vigneshbala.twi.server.HttpConversionServer;
+import com.vigneshbala.twi.util.ConversionPlan;
+import com.vigneshbala.twi.util.DocumentScanner;
+import com.vigneshbala.twi.util.FormatterCache;
+import com.vigneshbala.twi.util.ParallelBatchConverter;
+import com.vigneshbala.twi.util.ResultWriter;
 import com.vigneshbala.twi.util.TimeConversionUtil;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
 import picocli.CommandLine.Unmatched;
 
 /**
@@ -19,16 +48,75 @@ import picocli.CommandLine.Unmatched;
 @Command(name = "twi", version = "twi 1.0", description = "Prints the converted date & time to STDOUT.")
 public class TimeConverter implements Callable<Integer> {
 
-	@Parameters(index = "0", description = "Date Time in Natural Language")
+	@Parameters(index = "0", arity = "0..1", description = "Date Time in Natural Language")
 	private String input;
 
+	@Option(names = { "-b",
+			"--batch" }, description = "Read inputs line by line from STDIN (or from --file) and print one result per line")
+	private boolean batch;
+
+	@Option(names = { "--file" }, description = "Read the batch inputs from this file instead of STDIN")
+	private File file;
+
+	@Option(names = {
+			"--scan" }, paramLabel = "<file>", description = "Find every date time mentioned in this (UTF-8) file, e.g. a log or mail dump, and print one result per mention in file order. The file is memory mapped and scanned on --parallel threads (all processors by default)")
+	private File scan;
+
+	@Option(names = { "-p",
+			"--parallel" }, arity = "0..1", fallbackValue = "0", description = "Convert the batch (or serve daemon/HTTP calls) on this many threads (all processors if no value is given)")
+	private Integer threads;
+
+	@Option(names = {
+			"--unordered" }, description = "With --parallel, print results as soon as they are ready instead of in input order")
+	private boolean unordered;
+
+	@Option(names = {
+			"--output-format" }, defaultValue = "plain", description = "Line format of the batch results: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+	private ResultWriter.LineFormat outputFormat;
+
+	@Option(names = { "--output" }, description = "Write the batch results to this file instead of STDOUT")
+	private File output;
+
+	@Option(names = { "--stats" }, description = "Print batch throughput (lines/sec) to STDERR")
+	private boolean stats;
+
+	@Option(names = {
+			"--daemon" }, description = "Keep twi resident and answer the twi calls forwarded to it on a loopback port")
+	private boolean daemon;
+
+	@Option(names = {
+			"--port" }, defaultValue = "${env:" + DaemonServer.PORT_ENVIRONMENT_VARIABLE + ":-" + DaemonServer.DEFAULT_PORT
+					+ "}", description = "Loopback port of the daemon (default: ${DEFAULT-VALUE}, set "
+							+ DaemonServer.PORT_ENVIRONMENT_VARIABLE + " to change it for the clients as well)")
+	private int port;
+
+	@Option(names = {
+			"--http" }, arity = "0..1", fallbackValue = "8080", paramLabel = "<port>", description = "Serve conversions over HTTP (POST /convert, GET /metrics) on this port, 8080 if no value is given")
+	private Integer httpPort;
+
+	@Option(names = {
+			"--parse-cache" }, arity = "0..1", fallbackValue = "" + ParseCache.DEFAULT_MAX_SIZE, paramLabel = "<size>", description = "With --http, remember up to this many parsed inputs per minute of base time ("
+					+ ParseCache.DEFAULT_MAX_SIZE + " if no value is given)")
+	private Integer parseCacheSize;
+
+	// handled by main before picocli, declared so that a call no daemon answers
+	// runs locally with the same arguments
+	@Option(names = {
+			DaemonClient.OPTION }, description = "Send the call to a running daemon (see --daemon) and convert in this process if none answers, or set "
+					+ DaemonClient.ENVIRONMENT_VARIABLE + "=true")
+	private boolean daemonClient;
+
 	@Option(names = { "-f", "--format" }, description = "Date/Time Format(e.g. dd-MM-yyyy/dd-MM-yyyy HH:mm:ss)")
-	private String format = "dd/MM/yyyy hh:mm:ss a Z";
+	private String format = TimeConversionUtil.DEFAULT_FORMAT;
 
 	@Option(names = { "-z",
 			"--timezone" }, description = "Timezone short code or id (e.g. IST or Asia/Kolkata. repeat for passing multiple values)")
 	private String[] zones;
 
+	@Option(names = {
+			"--distinct" }, description = "Print a time zone or offset result only once even if several -z/-o values give the same line")
+	private boolean distinct;
+
 	@Unmatched
 	private String[] unmatched;
 
@@ -36,12 +124,27 @@ public class TimeConverter implements Callable<Integer> {
 			"--offset" }, description = "Offset from UTC format: +8, +8.5,+08:00,+08:30,-8, -8.5 -08:00,-08:30. repeat for passing multiple values")
 	private String[] offsets;
 
+	@Spec
+	private CommandSpec spec;
+
 	@Override
 	public Integer call() throws Exception {
 		Integer exitCode = 0;
 		try {
-			System.out.println(
-					TimeConversionUtil.convertDateTime(input, format, ZonedDateTime.now(), zones, null, offsets));
+			if (daemon) {
+				exitCode = runDaemon();
+			} else if (httpPort != null) {
+				exitCode = runHttpService();
+			} else if (scan != null) {
+				exitCode = scanDocument();
+			} else if (batch || file != null) {
+				exitCode = convertBatch();
+			} else if (input == null) {
+				throw new ParameterException(spec.commandLine(), "Missing required parameter: '<input>'");
+			} else {
+				spec.commandLine().getOut().println(
+						ConversionPlan.of(format, zones, null, offsets, distinct).convert(input, ZonedDateTime.now()));
+			}
 		} catch (Exception e) {
 			exitCode = 500;
 			throw e;
@@ -49,10 +152,154 @@ public class TimeConverter implements Callable<Integer> {
 		return exitCode;
 	}
 
-	public static void main(String... args) {
+	/**
+	 * Converts every line of STDIN or the batch file and streams the results to
+	 * STDOUT or the output file. Lines that fail are reported on STDERR (or as
+	 * error rows of the CSV and JSON formats) and do not stop the batch.
+	 * 
+	 * @return 0 if all lines were converted, 500 otherwise
+	 */
+	private Integer convertBatch() throws IOException, InterruptedException {
+		boolean interactive = file == null && output == null && System.console() != null;
+		ConversionPlan plan = ConversionPlan.of(format, zones, null, offsets, distinct);
+		BatchStatistics statistics = null;
+		try (BufferedReader reader = openBatchInput();
+				ResultWriter writer = new ResultWriter(openBatchOutput(), outputFormat, plan, System.err,
+						interactive)) {
+			ZonedDateTime now = ZonedDateTime.now();
+			if (threads != null) {
+				try (ParallelBatchConverter converter = new ParallelBatchConverter(threads,
+						ParallelBatchConverter.DEFAULT_CHUNK_SIZE, !unordered)) {
+					statistics = converter.convert(reader.lines().iterator(), plan, now, result -> {
+						try {
+							writer.write(result);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+			} else {
+				long start = System.nanoTime();
+				long lines = 0;
+				long failures = 0;
+				long lineNumber = 0;
+				String line;
+				while ((line = reader.readLine()) != null) {
+					lineNumber++;
+					if (StringUtils.isNotBlank(line)) {
+						lines++;
+						if (!writer.convert(lineNumber, line, now)) {
+							failures++;
+						}
+					}
+				}
+				statistics = new BatchStatistics(lines, failures, System.nanoTime() - start, 1);
+			}
+		}
+		if (stats) {
+			System.err.println(statistics);
+			System.err.println(FormatterCache.getStatistics());
+		}
+		return statistics.getFailures() > 0 ? 500 : 0;
+	}
+
+	/**
+	 * Scans the file for date times and streams one result per mention to
+	 * STDOUT or the output file, numbered by the line the mention is on.
+	 * 
+	 * @return 0 if all mentions were converted, 500 otherwise
+	 */
+	private Integer scanDocument() throws IOException, InterruptedException {
+		ConversionPlan plan = ConversionPlan.of(format, zones, null, offsets, distinct);
+		BatchStatistics statistics = null;
+		try (ResultWriter writer = new ResultWriter(openBatchOutput(), outputFormat, plan, System.err, false);
+				DocumentScanner scanner = new DocumentScanner(threads == null ? 0 : threads,
+						DocumentScanner.DEFAULT_CHUNK_SIZE)) {
+			statistics = scanner.scan(scan.toPath(), plan, ZonedDateTime.now(), result -> {
+				try {
+					writer.write(result);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		if (stats) {
+			System.err.println(statistics);
+		}
+		return statistics.getFailures() > 0 ? 500 : 0;
+	}
+
+	private BufferedReader openBatchInput() throws IOException {
+		if (file != null) {
+			return Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+		}
+		return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+	}
+
+	private WritableByteChannel openBatchOutput() throws IOException {
+		if (output != null) {
+			return FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+		return Channels.newChannel(System.out);
+	}
+
+	/**
+	 * Serves forwarded calls until the process is stopped.
+	 */
+	private Integer runDaemon() throws IOException {
+		try (DaemonServer server = new DaemonServer(port, threads == null ? 0 : threads,
+				TimeConverter::newCommandLine)) {
+			server.warmUp();
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					server.close();
+				} catch (IOException e) {
+					// exiting anyway
+				}
+			}));
+			spec.commandLine().getOut().println("twi daemon listening on port " + server.getPort());
+			server.serve();
+		}
+		return 0;
+	}
+
+	/**
+	 * Serves HTTP requests until the process is stopped.
+	 */
+	private Integer runHttpService() throws Exception {
+		ParseCache parseCache = parseCacheSize == null ? null
+				: new ParseCache(new DateTimeNLPParser(), parseCacheSize, ParseCache.DEFAULT_TIME_TO_LIVE,
+						ChronoUnit.MINUTES);
+		HttpConversionServer server = new HttpConversionServer(new InetSocketAddress(httpPort),
+				threads == null ? 0 : threads, HttpConversionServer.DEFAULT_QUEUE_CAPACITY, parseCache);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+		server.start();
+		spec.commandLine().getOut().println("twi HTTP service listening on port " + server.getPort());
+		Thread.currentThread().join();
+		return 0;
+	}
+
+	public static CommandLine newCommandLine() {
 		CommandLine commandLine = new CommandLine(new TimeConverter());
 		commandLine.setUnmatchedOptionsArePositionalParams(true);
-		int exitCode = commandLine.execute(args);
+		commandLine.setCaseInsensitiveEnumValuesAllowed(true);
+		return commandLine;
+	}
+
+	public static void main(String... args) {
+		Integer exitCode = null;
+		if (DaemonClient.isRequested(args)) {
+			exitCode = DaemonClient.forward(DaemonServer.getConfiguredPort(), DaemonClient.withoutClientOption(args),
+					System.out, System.err);
+		}
+		if (exitCode == null) {
+			exitCode = newCommandLine().execute(args);
+		}
 		System.exit(exitCode);
 	}
 }
\ No newline at end of file
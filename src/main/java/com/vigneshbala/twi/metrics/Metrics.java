@@ -0,0 +1,137 @@
+package com.vigneshbala.twi.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts, error counts by message and latency histograms of every
+ * {@link Stage}. Off unless the JVM is started with -Dtwi.metrics=true; the
+ * flag is a constant, so when it is off the JIT compiles the instrumentation
+ * away and no clock is read.
+ *
+ * When on, every stage is registered as an MXBean
+ * (com.vigneshbala.twi:type=Stage,name=&lt;stage&gt;), and with
+ * -Dtwi.metrics.dumpInterval=&lt;seconds&gt; the {@link #report()} is printed
+ * to STDERR at that interval and once more at exit.
+ *
+ * Instrumented code brackets a stage like this:
+ *
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * start = Metrics.record(Stage.TIME_ZONE, start);
+ * </pre>
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public final class Metrics {
+
+	public static final String ENABLED_PROPERTY = "twi.metrics";
+	public static final String DUMP_INTERVAL_PROPERTY = "twi.metrics.dumpInterval";
+	public static final String OBJECT_NAME_PREFIX = "com.vigneshbala.twi:type=Stage,name=";
+
+	public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+	private static final Logger LOGGER = Logger.getLogger(Metrics.class.getName());
+	private static final StageMetrics[] STAGES = new StageMetrics[Stage.values().length];
+
+	static {
+		for (Stage stage : Stage.values()) {
+			STAGES[stage.ordinal()] = new StageMetrics(stage);
+		}
+		if (ENABLED) {
+			registerMBeans();
+			scheduleDump(Long.getLong(DUMP_INTERVAL_PROPERTY, 0));
+		}
+	}
+
+	private Metrics() {
+	}
+
+	/**
+	 * @return start time of a stage, 0 if metrics are off
+	 */
+	public static long start() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Record a stage that completed.
+	 *
+	 * @param start value of {@link #start()} or of the previous record call
+	 * @return start time of the next stage, 0 if metrics are off
+	 */
+	public static long record(Stage stage, long start) {
+		if (!ENABLED) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		STAGES[stage.ordinal()].record(now - start);
+		return now;
+	}
+
+	/**
+	 * Record a stage that threw.
+	 */
+	public static void fail(Stage stage, Throwable error) {
+		if (ENABLED) {
+			STAGES[stage.ordinal()].fail(error);
+		}
+	}
+
+	/**
+	 * @return metrics of the stage, empty if metrics are off
+	 */
+	public static StageMetrics get(Stage stage) {
+		return STAGES[stage.ordinal()];
+	}
+
+	/**
+	 * @return one line per stage that ran, followed by its error messages
+	 */
+	public static String report() {
+		StringBuilder sb = new StringBuilder("twi metrics");
+		for (StageMetrics stage : STAGES) {
+			if (stage.getCount() > 0 || stage.getErrorCount() > 0) {
+				sb.append(System.lineSeparator()).append(stage);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static void registerMBeans() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (StageMetrics stage : STAGES) {
+			try {
+				server.registerMBean(stage, new ObjectName(OBJECT_NAME_PREFIX + stage.getStage()));
+			} catch (JMException e) {
+				LOGGER.log(Level.WARNING, "Metrics of " + stage.getStage() + " not registered", e);
+			}
+		}
+	}
+
+	private static void scheduleDump(long intervalSeconds) {
+		if (intervalSeconds <= 0) {
+			return;
+		}
+		ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "twi-metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		dumper.scheduleAtFixedRate(() -> System.err.println(report()), intervalSeconds, intervalSeconds,
+				TimeUnit.SECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.println(report()), "twi-metrics-exit"));
+	}
+
+}
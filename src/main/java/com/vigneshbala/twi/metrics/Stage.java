@@ -0,0 +1,38 @@
+package com.vigneshbala.twi.metrics;
+
+/**
+ * Instrumented stages of parsing and conversion, in the order they run.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public enum Stage {
+	/** lower casing, accent stripping and tokenizing the input */
+	CLEAN,
+	TIME_ZONE,
+	COUNTRY,
+	/** finding last/past/next */
+	DIRECTION,
+	YEAR,
+	RELATIVE,
+	HOUR_MINUTE,
+	MONTH,
+	DATE,
+	RELATIVE_DAYS,
+	WEEK_DAYS,
+	MONTHS_DELTA,
+	/** checking the parsed fields and resolving the date time */
+	RESOLVE,
+	/** a whole parse call, all of the above */
+	PARSE,
+	/** scanning a text (or a chunk of a stream) for date time expressions */
+	EXTRACT,
+	/** formatting a date time for a plan without targets */
+	FORMAT,
+	CONVERT_TIME_ZONES,
+	CONVERT_OFFSETS,
+	CONVERT_COUNTRIES,
+	/** typed conversion records */
+	CONVERT_RECORDS
+}
@@ -0,0 +1,121 @@
+package com.vigneshbala.twi.metrics;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.vigneshbala.twi.util.LatencyHistogram;
+
+/**
+ * Counts, errors and latencies of one {@link Stage}. Safe to record from many
+ * threads.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class StageMetrics implements StageMetricsMXBean {
+
+	/**
+	 * Error messages counted separately, later ones are counted under
+	 * {@link #OTHER_ERRORS}. Messages may quote the input, so they are not
+	 * allowed to grow the map without bound.
+	 */
+	static final int MAX_ERROR_MESSAGES = 32;
+	static final String OTHER_ERRORS = "(other)";
+
+	private static final double NANOS_PER_MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+
+	private final Stage stage;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder errors = new LongAdder();
+	private final ConcurrentMap<String, LongAdder> errorsByMessage = new ConcurrentHashMap<>();
+
+	StageMetrics(Stage stage) {
+		this.stage = stage;
+	}
+
+	public Stage getStage() {
+		return stage;
+	}
+
+	void record(long nanos) {
+		latency.record(nanos);
+	}
+
+	void fail(Throwable error) {
+		errors.increment();
+		String message = error.getMessage() != null ? error.getMessage() : error.getClass().getName();
+		LongAdder count = errorsByMessage.get(message);
+		if (count == null) {
+			count = errorsByMessage.size() < MAX_ERROR_MESSAGES
+					? errorsByMessage.computeIfAbsent(message, key -> new LongAdder())
+					: errorsByMessage.computeIfAbsent(OTHER_ERRORS, key -> new LongAdder());
+		}
+		count.increment();
+	}
+
+	@Override
+	public long getCount() {
+		return latency.getCount();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errors.sum();
+	}
+
+	@Override
+	public Map<String, Long> getErrorsByMessage() {
+		Map<String, Long> result = new TreeMap<>();
+		for (Entry<String, LongAdder> entry : errorsByMessage.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().sum());
+		}
+		return result;
+	}
+
+	@Override
+	public double getMeanMicros() {
+		return latency.getMeanNanos() / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public double getP50Micros() {
+		return micros(latency.getPercentileNanos(50));
+	}
+
+	@Override
+	public double getP90Micros() {
+		return micros(latency.getPercentileNanos(90));
+	}
+
+	@Override
+	public double getP99Micros() {
+		return micros(latency.getPercentileNanos(99));
+	}
+
+	@Override
+	public double getMaxMicros() {
+		return micros(latency.getMaxNanos());
+	}
+
+	private static double micros(long nanos) {
+		return nanos / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%-18s %s errors=%d", stage, latency, getErrorCount()));
+		for (Entry<String, Long> entry : getErrorsByMessage().entrySet()) {
+			sb.append(System.lineSeparator()).append("    ").append(entry.getValue()).append(" x ")
+					.append(entry.getKey());
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.vigneshbala.twi.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of one {@link Stage}, registered as
+ * com.vigneshbala.twi:type=Stage,name=&lt;stage&gt; when metrics are enabled.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public interface StageMetricsMXBean {
+
+	/**
+	 * @return runs that completed
+	 */
+	long getCount();
+
+	/**
+	 * @return runs that threw
+	 */
+	long getErrorCount();
+
+	/**
+	 * @return error count by exception message
+	 */
+	Map<String, Long> getErrorsByMessage();
+
+	double getMeanMicros();
+
+	double getP50Micros();
+
+	double getP90Micros();
+
+	double getP99Micros();
+
+	double getMaxMicros();
+
+}
@@ -0,0 +1,54 @@
+package com.vigneshbala.twi.model;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput figures of a batch conversion.
+ * 
+ * (c) 2024 Vignesh Balasubramanian
+ * 
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class BatchStatistics {
+	long lines;
+	long failures;
+	long elapsedNanos;
+	int parallelism;
+
+	public BatchStatistics(long lines, long failures, long elapsedNanos, int parallelism) {
+		this.lines = lines;
+		this.failures = failures;
+		this.elapsedNanos = elapsedNanos;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @return number of non blank inputs converted (including failures)
+	 */
+	public long getLines() {
+		return lines;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public double getLinesPerSecond() {
+		return elapsedNanos == 0 ? 0 : lines * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d lines (%d failed) in %.3f s using %d threads, %.0f lines/sec", lines, failures,
+				elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1), parallelism, getLinesPerSecond());
+	}
+
+}
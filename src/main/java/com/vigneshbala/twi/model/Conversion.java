@@ -0,0 +1,66 @@
+package com.vigneshbala.twi.model;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Typed result of a conversion: what the parser found and the converted date
+ * time of every target, in argument order (time zones, offsets, countries).
+ * Nothing is formatted until {@link #getText()} is called, and then only once.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class Conversion {
+
+	private final ParserResult parserResult;
+	private final List<ConvertedDateTime> dateTimes;
+	private final Callable<String> renderer;
+	private volatile String text;
+
+	/**
+	 * @param parserResult parsed input
+	 * @param dateTimes    converted date times, one per target
+	 * @param renderer     produces the textual rendering on first use
+	 */
+	public Conversion(ParserResult parserResult, List<ConvertedDateTime> dateTimes, Callable<String> renderer) {
+		this.parserResult = parserResult;
+		this.dateTimes = Collections.unmodifiableList(dateTimes);
+		this.renderer = renderer;
+	}
+
+	public ParserResult getParserResult() {
+		return parserResult;
+	}
+
+	/**
+	 * @return the parsed date time, in the default time zone
+	 */
+	public ZonedDateTime getDateTime() {
+		return parserResult.getToDateTime();
+	}
+
+	/**
+	 * @return converted date times, empty if the conversion has no targets
+	 */
+	public List<ConvertedDateTime> getDateTimes() {
+		return dateTimes;
+	}
+
+	/**
+	 * @return the same text as the string conversion methods
+	 * @throws Exception if the format is invalid
+	 */
+	public String getText() throws Exception {
+		String result = text;
+		if (result == null) {
+			result = renderer.call();
+			text = result;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.vigneshbala.twi.model;
+
+/**
+ * Outcome of converting one input of a batch. Either the output or the error
+ * is set.
+ * 
+ * (c) 2024 Vignesh Balasubramanian
+ * 
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class ConversionResult {
+	long lineNumber;
+	String input;
+	String output;
+	Exception error;
+
+	public ConversionResult(long lineNumber, String input, String output) {
+		this.lineNumber = lineNumber;
+		this.input = input;
+		this.output = output;
+	}
+
+	public ConversionResult(long lineNumber, String input, Exception error) {
+		this.lineNumber = lineNumber;
+		this.input = input;
+		this.error = error;
+	}
+
+	/**
+	 * @return 1 based position of the input in the batch
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	public String getInput() {
+		return input;
+	}
+
+	public String getOutput() {
+		return output;
+	}
+
+	public Exception getError() {
+		return error;
+	}
+
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+}
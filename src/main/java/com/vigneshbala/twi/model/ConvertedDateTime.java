@@ -0,0 +1,62 @@
+package com.vigneshbala.twi.model;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * The converted date time for one target of a conversion: a time zone
+ * argument (one record per zone the argument stands for), an offset, or one
+ * zone of a country.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class ConvertedDateTime {
+
+	public enum Target {
+		TIME_ZONE, OFFSET, COUNTRY
+	}
+
+	private final Target target;
+	private final String label;
+	private final ZoneId zone;
+	private final ZonedDateTime dateTime;
+
+	public ConvertedDateTime(Target target, String label, ZoneId zone, ZonedDateTime dateTime) {
+		this.target = target;
+		this.label = label;
+		this.zone = zone;
+		this.dateTime = dateTime;
+	}
+
+	public Target getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return the time zone or offset argument as given, the alpha2 code for a
+	 *         country
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	public ZonedDateTime getDateTime() {
+		return dateTime;
+	}
+
+	public long getEpochMilli() {
+		return dateTime.toInstant().toEpochMilli();
+	}
+
+	@Override
+	public String toString() {
+		return target + " " + label + " " + dateTime;
+	}
+
+}
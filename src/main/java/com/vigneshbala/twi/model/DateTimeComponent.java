@@ -1,23 +1,40 @@
 package com.vigneshbala.twi.model;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Month;
+import java.time.Year;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.util.Arrays;
-import java.util.Optional;
+import java.time.temporal.ChronoField;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.List;
 
 import com.vigneshbala.twi.nlp.DateTimeUnits;
 
+/**
+ * Date time fields and deltas collected by the parser. Everything is kept as
+ * primitives and resolved in one step when the date time or its epoch value is
+ * asked for; the result is the same as applying every delta to the base time
+ * with ZonedDateTime arithmetic.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
 public class DateTimeComponent {
 	int dayDelta;
 	int monthDelta;
 	int yearDelta;
 	int hourDelta;
 	int minuteDelta;
-	ZonedDateTime baseTime;
 	boolean isPast;
 	boolean isDateTimePresent;
+	boolean isDatePresent;
+	boolean isTimePresent;
 	int countDeltas;
 	int countAbsoluteDateTimes;
 	int toDate;
@@ -28,11 +45,30 @@ public class DateTimeComponent {
 
 	boolean adjustForPastDate = true;
 
+	// base time, taken apart once
+	private final ZoneRules baseRules;
+	private final long baseEpochSecond;
+	private final long baseLocalSecond;
+	private final int baseOffset;
+	private final int baseMonth;
+	private final int baseDay;
+	private final int baseDayOfWeek;
+
+	// offset of the last local date time resolved
+	private int resolvedOffset;
+
 	private static final int TOTAL_WEEKDAYS = 7;
 	private static final int TOTAL_MONTHS = 12;
+	private static final Month[] MONTHS = Month.values();
+
+	private static final long SECONDS_PER_MINUTE = 60;
+	private static final long SECONDS_PER_HOUR = 3600;
+	private static final long SECONDS_PER_DAY = 86400;
+	private static final long MILLIS_PER_SECOND = 1000;
+	private static final int MAX_OFFSET_SECONDS = 18 * 3600;
+	private static final int NO_OFFSET = Integer.MIN_VALUE;
 
 	public DateTimeComponent(ZonedDateTime baseTime, boolean isPast) {
-		this.baseTime = baseTime;
 		this.isPast = isPast;
 		this.toDate = baseTime.getDayOfMonth();
 		this.toMonth = baseTime.getMonthValue();
@@ -40,6 +76,13 @@ public class DateTimeComponent {
 		this.toHour = baseTime.getHour();
 		this.toMin = baseTime.getMinute();
 
+		this.baseRules = baseTime.getZone().getRules();
+		this.baseEpochSecond = baseTime.toEpochSecond();
+		this.baseOffset = baseTime.getOffset().getTotalSeconds();
+		this.baseLocalSecond = baseEpochSecond + baseOffset;
+		this.baseMonth = toMonth;
+		this.baseDay = toDate;
+		this.baseDayOfWeek = baseTime.getDayOfWeek().getValue();
 	}
 
 	public int getToHour() {
@@ -51,6 +94,7 @@ public class DateTimeComponent {
 		// set minute to zero if hour is available.
 		this.toMin = 0;
 		this.isDateTimePresent = true;
+		this.isTimePresent = true;
 	}
 
 	public int getToMin() {
@@ -60,6 +104,7 @@ public class DateTimeComponent {
 	public void setToMin(int toMin) {
 		this.toMin = toMin;
 		this.isDateTimePresent = true;
+		this.isTimePresent = true;
 	}
 
 	public int getToDate() {
@@ -70,6 +115,7 @@ public class DateTimeComponent {
 		this.toDate = toDate;
 		this.countAbsoluteDateTimes++;
 		this.isDateTimePresent = true;
+		this.isDatePresent = true;
 	}
 
 	public int getToMonth() {
@@ -80,12 +126,14 @@ public class DateTimeComponent {
 		this.toMonth = toMonthNumber(toMonth);
 		this.countAbsoluteDateTimes++;
 		this.isDateTimePresent = true;
+		this.isDatePresent = true;
 	}
 
 	public void setToMonth(int toMonth) {
 		this.toMonth = toMonth;
 		this.countAbsoluteDateTimes++;
 		this.isDateTimePresent = true;
+		this.isDatePresent = true;
 	}
 
 	public int getToYear() {
@@ -97,6 +145,7 @@ public class DateTimeComponent {
 		this.adjustForPastDate = false;
 		this.countAbsoluteDateTimes++;
 		this.isDateTimePresent = true;
+		this.isDatePresent = true;
 	}
 
 	public int getDayDelta() {
@@ -105,7 +154,7 @@ public class DateTimeComponent {
 
 	public void setDayDelta(String day) {
 
-		int deltaDays = DateTimeUnits.getInstance().getWeekDay(day) - baseTime.getDayOfWeek().getValue();
+		int deltaDays = DateTimeUnits.getInstance().getWeekDay(day) - baseDayOfWeek;
 		if (!isPast) {
 			deltaDays = deltaDays >= 0 ? deltaDays : (TOTAL_WEEKDAYS + deltaDays);
 		}
@@ -113,6 +162,7 @@ public class DateTimeComponent {
 		this.dayDelta = deltaDays;
 		this.countDeltas++;
 		this.isDateTimePresent = true;
+		this.isDatePresent = true;
 	}
 
 	public void setDayDelta(int dayDelta) {
@@ -120,6 +170,7 @@ public class DateTimeComponent {
 		this.dayDelta = dayDelta;
 		this.countDeltas++;
 		this.isDateTimePresent = true;
+		this.isDatePresent = true;
 	}
 
 	public void setRelativeDayDelta(String day) {
@@ -127,6 +178,7 @@ public class DateTimeComponent {
 		this.dayDelta = deltaDays;
 		this.countDeltas++;
 		this.isDateTimePresent = true;
+		this.isDatePresent = true;
 	}
 
 	public int getMonthDelta() {
@@ -137,16 +189,18 @@ public class DateTimeComponent {
 		this.monthDelta = monthDelta;
 		this.countDeltas++;
 		this.isDateTimePresent = true;
+		this.isDatePresent = true;
 	}
 
 	public void setMonthDelta(String month) {
-		int deltaMonths = DateTimeUnits.getInstance().getMonth(month) - baseTime.getMonthValue();
+		int deltaMonths = DateTimeUnits.getInstance().getMonth(month) - baseMonth;
 		if (!isPast) {
 			deltaMonths = deltaMonths >= 0 ? deltaMonths : (TOTAL_MONTHS + deltaMonths + 1);
 		}
 		this.monthDelta = deltaMonths;
 		this.countDeltas++;
 		this.isDateTimePresent = true;
+		this.isDatePresent = true;
 	}
 
 	public int getYearDelta() {
@@ -157,6 +211,7 @@ public class DateTimeComponent {
 		this.yearDelta = yearDelta;
 		this.countDeltas++;
 		this.isDateTimePresent = true;
+		this.isDatePresent = true;
 	}
 
 	public int getHourDelta() {
@@ -167,6 +222,7 @@ public class DateTimeComponent {
 		this.hourDelta = hourDelta;
 		this.countDeltas++;
 		this.isDateTimePresent = true;
+		this.isTimePresent = true;
 	}
 
 	public int getMinuteDelta() {
@@ -176,6 +232,21 @@ public class DateTimeComponent {
 	public void setMinuteDelta(int minuteDelta) {
 		this.minuteDelta = minuteDelta;
 		this.isDateTimePresent = true;
+		this.isTimePresent = true;
+	}
+
+	/**
+	 * @return true if the input set a date, month, year or day/month/year delta
+	 */
+	public boolean isDatePresent() {
+		return isDatePresent;
+	}
+
+	/**
+	 * @return true if the input set an hour, minute or hour/minute delta
+	 */
+	public boolean isTimePresent() {
+		return isTimePresent;
 	}
 
 	public boolean noDateTimePresent() {
@@ -187,49 +258,223 @@ public class DateTimeComponent {
 
 	}
 
+	/**
+	 * @return the date time in the default time zone
+	 * @throws java.time.DateTimeException if the fields do not form a valid date
+	 *                                      time (e.g. 31st of April)
+	 */
 	public ZonedDateTime getDateTime() {
-		ZonedDateTime result = null;
+		return getDateTime(ZoneId.systemDefault());
+	}
+
+	/**
+	 * @param zone time zone the fields are resolved in
+	 * @return the date time in the time zone
+	 * @throws java.time.DateTimeException if the fields do not form a valid date
+	 *                                      time (e.g. 31st of April)
+	 */
+	public ZonedDateTime getDateTime(ZoneId zone) {
+		long localSecond = resolve(zone.getRules());
+		return ZonedDateTime.ofLocal(LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC), zone,
+				ZoneOffset.ofTotalSeconds(resolvedOffset));
+	}
+
+	/**
+	 * Same instant as {@link #getDateTime()}, without creating the date time.
+	 *
+	 * @return milliseconds since the epoch
+	 * @throws java.time.DateTimeException if the fields do not form a valid date
+	 *                                      time (e.g. 31st of April)
+	 */
+	public long getEpochMilli() {
+		long localSecond = resolve(ZoneId.systemDefault().getRules());
+		return (localSecond - resolvedOffset) * MILLIS_PER_SECOND;
+	}
+
+	/**
+	 * Apply the deltas to the fields and resolve them in the zone, the same way
+	 * ZonedDateTime arithmetic would: day, month and year deltas move the local
+	 * date time of the base time, hour and minute deltas its instant. Only the
+	 * field a delta stands for is taken from the moved base time. A date behind
+	 * the base month is moved to the next year (and month) unless the year was
+	 * given.
+	 *
+	 * @return local date time in seconds since the epoch, the offset is left in
+	 *         {@link #resolvedOffset}
+	 */
+	private long resolve(ZoneRules rules) {
 		if (this.dayDelta != 0) {
-			this.toDate = this.baseTime.plusDays(dayDelta).getDayOfMonth();
+			long localSecond = resolveLocal(baseRules, baseLocalSecond + dayDelta * SECONDS_PER_DAY, baseOffset);
+			this.toDate = dayOfMonth(date(localSecond));
 		}
 		if (this.monthDelta != 0) {
-			this.toMonth = this.baseTime.plusMonths(monthDelta).getMonthValue();
+			this.toMonth = month(date(resolveLocal(baseRules, plusMonths(baseLocalSecond, monthDelta), baseOffset)));
 		}
 		if (this.yearDelta != 0) {
-			this.toYear = this.baseTime.plusYears(yearDelta).getYear();
+			this.toYear = year(date(resolveLocal(baseRules, plusMonths(baseLocalSecond, yearDelta * 12L), baseOffset)));
 		}
 		if (this.hourDelta != 0) {
-			this.toHour = this.baseTime.plusHours(hourDelta).getHour();
-
+			long localSecond = localSecondAt(baseRules, baseEpochSecond + hourDelta * SECONDS_PER_HOUR);
+			this.toHour = (int) (Math.floorMod(localSecond, SECONDS_PER_DAY) / SECONDS_PER_HOUR);
 		}
 		if (this.minuteDelta != 0) {
-			this.toMin = this.baseTime.plusMinutes(minuteDelta).getMinute();
+			long localSecond = localSecondAt(baseRules, baseEpochSecond + minuteDelta * SECONDS_PER_MINUTE);
+			this.toMin = (int) (Math.floorMod(localSecond, SECONDS_PER_HOUR) / SECONDS_PER_MINUTE);
 		}
 
-		result = ZonedDateTime.of(LocalDateTime.of(toYear, toMonth, toDate, toHour, toMin), ZoneId.systemDefault());
+		checkValid(toYear, toMonth, toDate, toHour, toMin);
+		long localSecond = toEpochDay(toYear, toMonth, toDate) * SECONDS_PER_DAY + toHour * SECONDS_PER_HOUR
+				+ toMin * SECONDS_PER_MINUTE;
+		localSecond = resolveLocal(rules, localSecond, NO_OFFSET);
 
-		if (this.adjustForPastDate && result.getMonthValue() < baseTime.getMonthValue()) {
-			result = result.plusYears(1);
-			if (result.getDayOfMonth() < baseTime.getDayOfMonth()) {
-				result = result.plusMonths(1);
+		if (this.adjustForPastDate && month(date(localSecond)) < baseMonth) {
+			localSecond = resolveLocal(rules, plusMonths(localSecond, 12), resolvedOffset);
+			if (dayOfMonth(date(localSecond)) < baseDay) {
+				localSecond = resolveLocal(rules, plusMonths(localSecond, 1), resolvedOffset);
 			}
+		}
+		return localSecond;
+	}
 
+	/**
+	 * Same checks, in the same order and with the same exceptions, as
+	 * LocalDateTime.of.
+	 */
+	private static void checkValid(int year, int month, int dayOfMonth, int hour, int minute) {
+		ChronoField.YEAR.checkValidValue(year);
+		ChronoField.MONTH_OF_YEAR.checkValidValue(month);
+		ChronoField.DAY_OF_MONTH.checkValidValue(dayOfMonth);
+		if (dayOfMonth > 28 && dayOfMonth > Month.of(month).length(Year.isLeap(year))) {
+			// throws with the message of LocalDate
+			LocalDate.of(year, month, dayOfMonth);
 		}
-		return result;
+		ChronoField.HOUR_OF_DAY.checkValidValue(hour);
+		ChronoField.MINUTE_OF_HOUR.checkValidValue(minute);
 	}
 
-	private static int toMonthNumber(String monthName) {
-		int result;
-		if (monthName.length() > 3) {
-			result = Month.valueOf(monthName.toUpperCase()).getValue();
+	/**
+	 * Resolve a local date time in a zone like ZonedDateTime.ofLocal: a time in a
+	 * gap moves forward by the length of the gap, a time in an overlap keeps the
+	 * preferred offset if it is valid and takes the earlier offset otherwise.
+	 *
+	 * @param localSecond     local date time in seconds since the epoch
+	 * @param preferredOffset offset in seconds, {@link #NO_OFFSET} for none
+	 * @return resolved local date time, its offset is left in
+	 *         {@link #resolvedOffset}
+	 */
+	private long resolveLocal(ZoneRules rules, long localSecond, int preferredOffset) {
+		if (rules.isFixedOffset()) {
+			resolvedOffset = rules.getOffset(Instant.EPOCH).getTotalSeconds();
+			return localSecond;
+		}
+		// the same offset at both ends of the window of instants the local time
+		// can stand for means there is no transition near it (no zone changes
+		// its offset twice within 36 hours)
+		int offset = offsetAt(rules, localSecond - MAX_OFFSET_SECONDS);
+		if (offset == offsetAt(rules, localSecond + MAX_OFFSET_SECONDS)
+				&& offset == offsetAt(rules, localSecond - offset)) {
+			resolvedOffset = offset;
+			return localSecond;
+		}
+		LocalDateTime local = LocalDateTime.ofEpochSecond(localSecond, 0, ZoneOffset.UTC);
+		List<ZoneOffset> validOffsets = rules.getValidOffsets(local);
+		if (validOffsets.size() == 1) {
+			resolvedOffset = validOffsets.get(0).getTotalSeconds();
+		} else if (validOffsets.isEmpty()) {
+			ZoneOffsetTransition gap = rules.getTransition(local);
+			resolvedOffset = gap.getOffsetAfter().getTotalSeconds();
+			localSecond += gap.getDuration().getSeconds();
+		} else if (preferredOffset != NO_OFFSET
+				&& validOffsets.contains(ZoneOffset.ofTotalSeconds(preferredOffset))) {
+			resolvedOffset = preferredOffset;
 		} else {
-			Optional<Month> monthOptional = Arrays.stream(Month.values())
-					.filter(month -> month.name().substring(0, 3).equalsIgnoreCase(monthName)).findFirst();
-
-			result = monthOptional.orElseThrow(IllegalArgumentException::new).getValue();
+			resolvedOffset = validOffsets.get(0).getTotalSeconds();
 		}
-		return result;
+		return localSecond;
+	}
 
+	private static int offsetAt(ZoneRules rules, long epochSecond) {
+		return rules.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+	}
+
+	/**
+	 * @return local date time of the instant in seconds since the epoch
+	 */
+	private static long localSecondAt(ZoneRules rules, long epochSecond) {
+		return epochSecond + offsetAt(rules, epochSecond);
+	}
+
+	/**
+	 * LocalDate.plusMonths on a local date time: the day is clamped to the
+	 * length of the new month, the time is kept.
+	 */
+	private static long plusMonths(long localSecond, long months) {
+		long date = date(localSecond);
+		long monthCount = year(date) * 12L + (month(date) - 1) + months;
+		int year = ChronoField.YEAR.checkValidIntValue(Math.floorDiv(monthCount, 12));
+		int month = (int) Math.floorMod(monthCount, 12) + 1;
+		int dayOfMonth = Math.min(dayOfMonth(date), Month.of(month).length(Year.isLeap(year)));
+		return toEpochDay(year, month, dayOfMonth) * SECONDS_PER_DAY + Math.floorMod(localSecond, SECONDS_PER_DAY);
+	}
+
+	/**
+	 * Days since 1970-01-01 of a proleptic Gregorian date.
+	 */
+	private static long toEpochDay(int year, int month, int dayOfMonth) {
+		long y = month <= 2 ? year - 1L : year;
+		long era = Math.floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + dayOfMonth - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * @return the date packed as year, month and day of month, see
+	 *         {@link #year(long)}, {@link #month(long)} and
+	 *         {@link #dayOfMonth(long)}
+	 */
+	private static long fromEpochDay(long epochDay) {
+		long days = epochDay + 719468;
+		long era = Math.floorDiv(days, 146097);
+		long dayOfEra = days - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long shiftedMonth = (5 * dayOfYear + 2) / 153;
+		long dayOfMonth = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+		long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		return year << 16 | month << 8 | dayOfMonth;
+	}
+
+	private static long date(long localSecond) {
+		return fromEpochDay(Math.floorDiv(localSecond, SECONDS_PER_DAY));
+	}
+
+	private static int year(long date) {
+		return (int) (date >> 16);
+	}
+
+	private static int month(long date) {
+		return (int) (date >> 8 & 0xFF);
+	}
+
+	private static int dayOfMonth(long date) {
+		return (int) (date & 0xFF);
+	}
+
+	private static int toMonthNumber(String monthName) {
+		if (monthName.length() > 3) {
+			return Month.valueOf(monthName.toUpperCase()).getValue();
+		}
+		if (monthName.length() == 3) {
+			for (Month month : MONTHS) {
+				if (month.name().regionMatches(true, 0, monthName, 0, 3)) {
+					return month.getValue();
+				}
+			}
+		}
+		throw new IllegalArgumentException();
 	}
 
 }
@@ -0,0 +1,61 @@
+package com.vigneshbala.twi.model;
+
+import java.time.ZonedDateTime;
+
+/**
+ * A date time expression found in a text: where it is, as character offsets
+ * into the text, and what the parser resolved it to.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DateTimeSpan {
+
+	private final long start;
+	private final long end;
+	private final String text;
+	private final ParserResult result;
+
+	public DateTimeSpan(long start, long end, String text, ParserResult result) {
+		this.start = start;
+		this.end = end;
+		this.text = text;
+		this.result = result;
+	}
+
+	/**
+	 * @return offset of the first character of the expression
+	 */
+	public long getStart() {
+		return start;
+	}
+
+	/**
+	 * @return offset after the last character of the expression
+	 */
+	public long getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return the expression as written in the text
+	 */
+	public String getText() {
+		return text;
+	}
+
+	public ParserResult getResult() {
+		return result;
+	}
+
+	public ZonedDateTime getDateTime() {
+		return result.getToDateTime();
+	}
+
+	@Override
+	public String toString() {
+		return start + "-" + end + " \"" + text + "\" " + result.getToDateTime();
+	}
+
+}
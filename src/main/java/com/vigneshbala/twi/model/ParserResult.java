@@ -2,10 +2,16 @@ package com.vigneshbala.twi.model;
 
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 
+import com.vigneshbala.twi.util.FormatterCache;
+
 /**
+ * What the parser found in an input: the date time it stands for, whether the
+ * input named a date, a time, a time zone or a country, and the zone or
+ * country itself. The offsets are the ones the result was converted to, set by
+ * the conversion.
+ * 
  * (c) 2024 Vignesh Balasubramanian
  * 
  * This code is licensed under MIT license (see LICENSE for details)
@@ -53,10 +59,18 @@ public class ParserResult {
 		return timezones;
 	}
 
+	public void setTimezones(List<ZoneId> timezones) {
+		this.timezones = timezones;
+	}
+
 	public List<CountryRecord> getCountries() {
 		return countries;
 	}
 
+	public void setCountries(List<CountryRecord> countries) {
+		this.countries = countries;
+	}
+
 	public List<String> getOffsets() {
 		return offsets;
 	}
@@ -73,9 +87,29 @@ public class ParserResult {
 		this.offsets = offsets;
 	}
 
+	public String getOutputFormat() {
+		return outputformat;
+	}
+
+	/**
+	 * @param format output format of the copy
+	 * @return a copy of this result with another output format
+	 */
+	public ParserResult withFormat(String format) {
+		ParserResult copy = new ParserResult(format);
+		copy.timezones = timezones;
+		copy.countries = countries;
+		copy.offsets = offsets;
+		copy.toDateTime = toDateTime;
+		copy.isTimezonePresent = isTimezonePresent;
+		copy.isDatePresent = isDatePresent;
+		copy.isTimePresent = isTimePresent;
+		return copy;
+	}
+
 	public String getPrettyPrintedResult() {
 		StringBuilder sb = new StringBuilder();
-		sb.append(DateTimeFormatter.ofPattern(outputformat).format(toDateTime));
+		sb.append(FormatterCache.get(outputformat).format(toDateTime));
 		return sb.toString();
 
 	}
@@ -0,0 +1,387 @@
+package com.vigneshbala.twi.nlp;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import com.vigneshbala.twi.metrics.Metrics;
+import com.vigneshbala.twi.metrics.Stage;
+import com.vigneshbala.twi.model.DateTimeSpan;
+import com.vigneshbala.twi.model.ParserResult;
+import com.vigneshbala.twi.nlp.DateTimeToken.Type;
+import com.vigneshbala.twi.nlp.DateTimeToken.Unit;
+import com.vigneshbala.twi.nlp.KeywordTrie.Keyword;
+import com.vigneshbala.twi.util.TimeZoneIndex;
+
+/**
+ * Finds every date time expression in a free text, e.g. "3pm SGT" and
+ * "tuesday 10am IST" in "call at 3pm SGT, or else tuesday 10am IST".
+ *
+ * The text is tokenized once and the tokens are walked from left to right,
+ * grouping the date time parts (a time, a date, a month, a year, a week day or
+ * relative day, a signed offset, next/last/past and a time zone) into
+ * expressions. An expression ends at a line or sentence break, at any other
+ * word, or when a part would repeat or mix with a part the
+ * {@link DateTimeNLPParser} grammars do not accept together (e.g. a second
+ * time in "3pm 4pm"). The tokens of each expression are then run through the
+ * parser grammars; the ones they reject are skipped.
+ *
+ * A bare number, ordinal or year is not a date time on its own, an expression
+ * needs an anchor: a time with am/pm or minutes, a signed offset, a relative
+ * day, a time zone, a month with a number or a month or week day name that is
+ * written in full or capitalized (so the "may" of "you may call" is not one).
+ * Time zones are matched as written, as a region id (Asia/Singapore) or an
+ * upper case short name (SGT, or one of the java.time short ids such as IST).
+ * The date time of an expression is resolved in its time zone, or in the zone
+ * of the base time if it names none.
+ *
+ * Streams are read in windows of {@link #WINDOW_SIZE} characters that end at a
+ * line break, so a text never has to be loaded whole. Only a line longer than
+ * the window is cut elsewhere (at white space), which may split an expression.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DateTimeExtractor {
+
+	static final int WINDOW_SIZE = 64 * 1024;
+
+	private static final String NEXT = "next";
+	private static final String PAST = "past";
+	private static final String LAST = "last";
+	// plain words that may stand between the parts of an expression
+	private static final String[] CONNECTORS = { "at", "on", "of", "the" };
+	private static final int MAX_CONNECTORS = 2;
+	private static final int MAX_ABBREVIATION_LENGTH = 3;
+	private static final int YEAR_DIGITS = 4;
+
+	// parts of an expression, each is set at most once
+	private static final int TIME = 1;
+	private static final int DATE = 1 << 1;
+	private static final int MONTH = 1 << 2;
+	private static final int YEAR = 1 << 3;
+	private static final int DELTA = 1 << 4;
+	private static final int MINUTE_DELTA = 1 << 5;
+	private static final int DIRECTION = 1 << 6;
+	private static final int ZONE = 1 << 7;
+	private static final int ABSOLUTE_DATE = DATE | MONTH | YEAR;
+
+	private final DateTimeNLPParser parser;
+	private final String format;
+
+	/**
+	 * @param parser parser whose grammars resolve the expressions
+	 * @param format output format of the parser results
+	 */
+	public DateTimeExtractor(DateTimeNLPParser parser, String format) {
+		this.parser = parser;
+		this.format = format;
+	}
+
+	/**
+	 * @param text     text to scan
+	 * @param baseTime Base Date Time, now if null
+	 * @return the expressions found, in the order they appear in the text
+	 */
+	public List<DateTimeSpan> extract(String text, ZonedDateTime baseTime) {
+		List<DateTimeSpan> spans = new ArrayList<>();
+		scan(text, 0, baseTime != null ? baseTime : ZonedDateTime.now(), spans::add);
+		return spans;
+	}
+
+	/**
+	 * Scan a stream, passing every expression to the consumer as soon as the
+	 * window holding it has been scanned. The offsets of the spans are character
+	 * offsets from the start of the stream.
+	 *
+	 * @param reader   text to scan, read to the end but not closed
+	 * @param baseTime Base Date Time, now if null
+	 * @param consumer receives the expressions in the order they appear
+	 * @return number of expressions found
+	 * @throws IOException thrown when reading fails
+	 */
+	public long extract(Reader reader, ZonedDateTime baseTime, Consumer<DateTimeSpan> consumer) throws IOException {
+		ZonedDateTime base = baseTime != null ? baseTime : ZonedDateTime.now();
+		char[] window = new char[WINDOW_SIZE];
+		int length = 0;
+		long offset = 0;
+		long found = 0;
+		int read;
+		while ((read = reader.read(window, length, window.length - length)) >= 0) {
+			length += read;
+			if (length < window.length) {
+				continue;
+			}
+			int end = lastBreak(window, length);
+			found += scan(new String(window, 0, end), offset, base, consumer);
+			System.arraycopy(window, end, window, 0, length - end);
+			length -= end;
+			offset += end;
+		}
+		if (length > 0) {
+			found += scan(new String(window, 0, length), offset, base, consumer);
+		}
+		return found;
+	}
+
+	/**
+	 * @return length of the window up to its last line break, or failing that
+	 *         its last white space
+	 */
+	private static int lastBreak(char[] window, int length) {
+		for (int i = length - 1; i >= 0; i--) {
+			if (window[i] == '\n') {
+				return i + 1;
+			}
+		}
+		for (int i = length - 1; i >= 0; i--) {
+			if (Character.isWhitespace(window[i])) {
+				return i + 1;
+			}
+		}
+		return length;
+	}
+
+	private int scan(String text, long offset, ZonedDateTime baseTime, Consumer<DateTimeSpan> consumer) {
+		long start = Metrics.start();
+		Scan scan = new Scan(text, offset, baseTime, consumer);
+		scan.run();
+		Metrics.record(Stage.EXTRACT, start);
+		return scan.found;
+	}
+
+	/**
+	 * Lower case the text character by character, so the offsets of the tokens
+	 * are offsets into the text as written.
+	 */
+	private static String toLowerCase(String text) {
+		char[] chars = text.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(chars[i]);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * State of one scan over a text: the tokens and the expression being built.
+	 */
+	private final class Scan {
+		private final String text;
+		private final long offset;
+		private final ZonedDateTime baseTime;
+		private final Consumer<DateTimeSpan> consumer;
+		private final List<DateTimeToken> tokens;
+		private int found;
+
+		private List<DateTimeToken> expression = new ArrayList<>();
+		private int start = -1;
+		private int end;
+		private int parts;
+		private boolean anchored;
+		private ZoneId zone;
+		private int connectors;
+
+		private Scan(String text, long offset, ZonedDateTime baseTime, Consumer<DateTimeSpan> consumer) {
+			this.text = text;
+			this.offset = offset;
+			this.baseTime = baseTime;
+			this.consumer = consumer;
+			this.tokens = DateTimeTokenizer.tokenize(toLowerCase(text));
+		}
+
+		private void run() {
+			for (int i = 0; i < tokens.size(); i++) {
+				if (start >= 0 && isBreak(end, tokens.get(i).getStart())) {
+					flush();
+				}
+				i = next(i);
+			}
+			flush();
+		}
+
+		/**
+		 * Add the part starting at the token to the expression, or end the
+		 * expression if the token is not part of a date time.
+		 *
+		 * @return index of the last token of the part
+		 */
+		private int next(int i) {
+			DateTimeToken token = tokens.get(i);
+			switch (token.getType()) {
+			case SIGN:
+				if (isType(i + 1, Type.NUMBER) && isType(i + 2, Type.UNIT)) {
+					// the parser does not count minute offsets, "+2h +30min" is one
+					add(i, 3, tokens.get(i + 2).getUnit() == Unit.MINUTE ? MINUTE_DELTA : DELTA, true);
+					return i + 2;
+				}
+				break;
+			case NUMBER:
+				if (isType(i + 1, Type.MERIDIEM)) {
+					add(i, 2, TIME, true);
+					return i + 1;
+				}
+				if (isType(i + 1, Type.UNIT)) {
+					// a duration (e.g. "2 days"), not a point in time
+					flush();
+					return i + 1;
+				}
+				if (token.getDigits() == YEAR_DIGITS && !token.hasMinute() && !token.hasFraction()) {
+					add(i, 1, YEAR, false);
+					return i;
+				}
+				if (token.getDigits() <= 2 && !token.hasFraction()) {
+					add(i, 1, TIME, token.hasMinute());
+					return i;
+				}
+				break;
+			case ORDINAL:
+				add(i, 1, DATE, false);
+				return i;
+			case MONTH:
+				add(i, 1, MONTH, isNamed(token));
+				return i;
+			case WEEKDAY:
+				add(i, 1, DELTA, isNamed(token));
+				return i;
+			case WORD:
+				int words = relativeDayLength(i);
+				if (words > 0) {
+					add(i, words, DELTA, true);
+					return i + words - 1;
+				}
+				if (token.textEquals(NEXT) || token.textEquals(LAST) || token.textEquals(PAST)) {
+					add(i, 1, DIRECTION, false);
+					return i;
+				}
+				ZoneId tokenZone = findZone(token);
+				if (tokenZone != null) {
+					add(i, 0, ZONE, true);
+					zone = tokenZone;
+					end = token.getEnd();
+					return i;
+				}
+				if (start >= 0 && isConnector(token) && ++connectors <= MAX_CONNECTORS) {
+					return i;
+				}
+				break;
+			default:
+				break;
+			}
+			flush();
+			return i;
+		}
+
+		/**
+		 * @return number of tokens of the relative day keywords at the token, 0 if
+		 *         none. Adjacent keywords are one part, the parser reads "day after
+		 *         tomorrow" as a whole.
+		 */
+		private int relativeDayLength(int i) {
+			KeywordTrie trie = DateTimeUnits.getInstance().getRelativeDaysTrie();
+			int index = i;
+			Keyword keyword;
+			while (index < tokens.size() && (keyword = trie.longestMatch(tokens, index)) != null) {
+				index += keyword.getWords();
+			}
+			return index - i;
+		}
+
+		/**
+		 * Add a part of count tokens, ending the expression first if the part
+		 * cannot join it.
+		 */
+		private void add(int i, int count, int part, boolean anchor) {
+			if ((parts & part) != 0 || (part == DELTA && (parts & ABSOLUTE_DATE) != 0)
+					|| ((part & ABSOLUTE_DATE) != 0 && (parts & DELTA) != 0)) {
+				flush();
+			}
+			if (start < 0) {
+				start = tokens.get(i).getStart();
+			}
+			for (int j = i; j < i + count; j++) {
+				expression.add(tokens.get(j));
+				end = tokens.get(j).getEnd();
+			}
+			parts |= part;
+			anchored |= anchor;
+			connectors = 0;
+		}
+
+		private void flush() {
+			if (start >= 0 && !expression.isEmpty() && isAnchored()) {
+				ParserResult result = null;
+				try {
+					result = parser.parse(expression, zone, baseTime, format);
+				} catch (Exception e) {
+					// not a date time the grammars accept (e.g. "31st apr 3pm")
+				}
+				if (result != null) {
+					found++;
+					consumer.accept(new DateTimeSpan(offset + start, offset + end, text.substring(start, end), result));
+				}
+			}
+			expression = new ArrayList<>();
+			start = -1;
+			parts = 0;
+			anchored = false;
+			zone = null;
+			connectors = 0;
+		}
+
+		private boolean isAnchored() {
+			return anchored || ((parts & MONTH) != 0 && (parts & (DATE | TIME | YEAR)) != 0);
+		}
+
+		private boolean isType(int i, Type type) {
+			return i < tokens.size() && tokens.get(i).getType() == type;
+		}
+
+		/**
+		 * @return whether a month or week day name is written in full or
+		 *         capitalized, rather than an abbreviation that may be a plain word
+		 */
+		private boolean isNamed(DateTimeToken token) {
+			return token.length() > MAX_ABBREVIATION_LENGTH || Character.isUpperCase(text.charAt(token.getStart()));
+		}
+
+		private ZoneId findZone(DateTimeToken token) {
+			return DateTimeNLPParser.findZone(text.substring(token.getStart(), token.getEnd()));
+		}
+
+		/**
+		 * An expression does not run across a line break, a ; ! or ? or the end of
+		 * a sentence. A full stop followed by a number is taken as an abbreviation
+		 * (e.g. "jan. 5th").
+		 */
+		private boolean isBreak(int from, int to) {
+			for (int i = from; i < to; i++) {
+				char c = text.charAt(i);
+				if (c == '\n' || c == '\r' || c == ';' || c == '!' || c == '?') {
+					return true;
+				}
+				if (c == '.' && i + 1 < to && Character.isWhitespace(text.charAt(i + 1))
+						&& !Character.isDigit(text.charAt(to))) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static boolean isConnector(DateTimeToken token) {
+		for (String connector : CONNECTORS) {
+			if (token.textEquals(connector)) {
+				return true;
+			}
+		}
+		// the rest of a keyword (e.g. "from" of "2 days from now")
+		return DateTimeUnits.getInstance().isKeyword(token.getText());
+	}
+
+}
@@ -3,29 +3,36 @@ package com.vigneshbala.twi.nlp;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.TextStyle;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.RegExUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import com.vigneshbala.twi.metrics.Metrics;
+import com.vigneshbala.twi.metrics.Stage;
 import com.vigneshbala.twi.model.CountryRecord;
 import com.vigneshbala.twi.model.DateTimeComponent;
 import com.vigneshbala.twi.model.ParserResult;
+import com.vigneshbala.twi.nlp.DateTimeToken.Type;
+import com.vigneshbala.twi.nlp.DateTimeToken.Unit;
+import com.vigneshbala.twi.nlp.KeywordTrie.Keyword;
+import com.vigneshbala.twi.util.CountryIndex;
+import com.vigneshbala.twi.util.CountryIndex.Phrase;
 import com.vigneshbala.twi.util.ReferenceDataUtil;
+import com.vigneshbala.twi.util.TimeZoneIndex;
 
 /**
  * A Custom NLP Parser for date and time strings written in Java. Currently only
  * English is supported and only a select grammars are supported for date and
  * time conversion CLI
  * 
+ * The parser holds no state between calls, all the working state of a parse is
+ * kept in a {@link ParseContext} local to the call. A single instance can be
+ * shared by any number of threads.
+ * 
  * (c) 2024 Vignesh Balasubramanian
  * 
  * This code is licensed under MIT license (see LICENSE for details)
@@ -35,54 +42,18 @@ public class DateTimeNLPParser {
 	private final static Logger LOGGER = Logger.getLogger(DateTimeNLPParser.class.getName());
 
 	// Literal constants
-	private static final String HRS = "hrs";
-	private static final String HR = "hr";
-	private static final String H = "h";
-	private static final String HOURS = "hours";
-	private static final String HOUR = "hour";
-	private static final String D = "d";
-	private static final String DAY = "day";
-	private static final String DAYS = "days";
-	private static final String M = "m";
-	private static final String MONTH = "month";
-	private static final String MONTHS = "months";
-	private static final String MINUS = "-";
-	private static final String PLUS = "+";
-	private static final String FIELD = "field";
-	private static final String DECIMAL = "decimal";
-	private static final String NUMBER = "number";
-	private static final String RELATION = "relation";
 	private static final String INVALID_INPUT = "Invalid Input";
 	private static final String NEXT = "next";
 	private static final String PAST = "past";
 	private static final String LAST = "last";
-	private static final String TOMORROW = "tomorrow";
-	private static final String YESTERDAY = "yesterday";
-	private static final List<String> SPECIFIERS = Arrays.asList("standard", "std", "time", "timezone", "zone", "day",
-			"light", "daylight", "savings");
-
-	// Regular Expressions
-	private static final String MONTH_REGEX = "jan(?:uary)?|feb(?:raury)?|mar(?:ch)?|apr(?:il)?|may|jun(?:e)?|jul(?:y)?|aug(?:ust)?|sep(?:tember)?|oct(?:ober)?|nov(?:ember)?|dec(?:ember)?";
-	private static final String DATE_REGEX = "\\d{1,2}(st|rd|th|nd|\\s)?";
-	private static final String HOUR_MIN_REGEX = "(?<hour>\\d{1,2})\\s?(?<minute>:?\\d{1,2})?\\s?(?<suffix>hours|hrs|am|pm)?\\b";
-	private static final String RELATIVE_REGEX = "(?<relation>\\+|\\-)(?<number>\\d{1,2})(?<decimal>\\.\\d{1,2})?(?<field>days|day|d|months|month|m|hrs|h|hours|hr|min|m|mins)?";
-	private static final String TIME_REGEX = "([0-9]{1,2})(:[0-9]{1,2})?";
-	private static final String YEAR_REGEX = "\\d{4}";
-
-	// Time Zones
-	private static final List<ZoneId> availableTimeZones = ZoneId.getAvailableZoneIds().stream().map(ZoneId::of)
-			.collect(Collectors.toList());
+	private static final int YEAR_DIGITS = 4;
+	private static final char ASCII_MAX = 127;
+	private static final int MAX_ZONE_CODE_LENGTH = 5;
 
 	// Exception messages
 	private static final String CONTAIN_MORE_DATE_TIME = "String contain more date/time.. currently only one is supported..";
 	private static final String DOES_NOT_CONTAIN_ANY_DATES_OR_TIME = "String does not contain any dates or time..";
 
-	private static CountryRecord countryRecord = null;
-	private static ZoneId timeZone = null;
-
-	private DateTimeComponent dtmComponent = null;
-	private String input = null;
-
 	/**
 	 * Natural language Date & Time Parser
 	 * 
@@ -93,299 +64,378 @@ public class DateTimeNLPParser {
 	 * @throws Exception will be thrown on error conditions
 	 */
 	public ParserResult parse(String input, ZonedDateTime dateTime, String format) throws Exception {
-		ParserResult result = new ParserResult(format);
 		ZonedDateTime baseTime = null;
 		if (dateTime == null) {
 			baseTime = ZonedDateTime.now();
 		} else {
 			baseTime = dateTime;
 		}
-		boolean past = false;
-		boolean next = false;
 
+		ParseContext context = new ParseContext();
+		context.stage = Stage.CLEAN;
+		context.stageStart = Metrics.start();
+		long parseStart = context.stageStart;
 		try {
-			this.input = extractandCleanInput(input);
-			past = inputHasLastorPast(input);
-			next = inputHasNext(input);
-
-			if (next && past) {
-				throw new Exception(INVALID_INPUT);
+			extractandCleanInput(context, input);
+			if (context.timeZone != null) {
+				// a time named in a zone (e.g. "8 pm SGT") is read in that zone
+				return resolve(context, baseTime.withZoneSameInstant(context.timeZone), context.timeZone, format,
+						parseStart);
 			}
+			return resolve(context, baseTime, ZoneId.systemDefault(), format, parseStart);
+		} catch (Exception e) {
+			Metrics.fail(context.stage, e);
+			Metrics.fail(Stage.PARSE, e);
+			LOGGER.severe(e.getMessage());
+			throw e;
+		}
+	}
 
-			this.dtmComponent = new DateTimeComponent(baseTime, past);
+	/**
+	 * Parse the tokens of a single expression found by
+	 * {@link DateTimeExtractor}. The time zone, if any, has been matched by the
+	 * caller and its tokens left out. Failures are neither logged nor counted
+	 * in {@link Metrics}, the extractor tries every candidate span and drops
+	 * the ones the grammars do not accept.
+	 * 
+	 * @param tokens   tokens of the expression, not consumed yet
+	 * @param timeZone time zone named next to the expression or null
+	 * @param baseTime Base Date Time
+	 * @param format   Output format
+	 * @return ParserResult object, the date time is in the time zone or (if none)
+	 *         in the zone of the base time
+	 * @throws Exception will be thrown on error conditions
+	 */
+	ParserResult parse(List<DateTimeToken> tokens, ZoneId timeZone, ZonedDateTime baseTime, String format)
+			throws Exception {
+		ParseContext context = new ParseContext();
+		context.tokens = tokens;
+		context.timeZone = timeZone;
+		context.stage = Stage.DIRECTION;
+		context.stageStart = Metrics.start();
+		long parseStart = context.stageStart;
+		ZoneId zone = timeZone != null ? timeZone : baseTime.getZone();
+		return resolve(context, baseTime.withZoneSameInstant(zone), zone, format, parseStart);
+	}
 
-			parseYear();
-			
-			parseRelative();
+	/**
+	 * Run the grammars over the tokens of the context and resolve the date time
+	 * in the zone.
+	 */
+	private ParserResult resolve(ParseContext context, ZonedDateTime baseTime, ZoneId zone, String format,
+			long parseStart) throws Exception {
+		ParserResult result = new ParserResult(format);
+		boolean past = inputHasLastorPast(context);
+		boolean next = inputHasNext(context);
 
-			parseHourMinuteSeconds();
+		if (next && past) {
+			throw new Exception(INVALID_INPUT);
+		}
 
-			parseMonth();
+		context.dtmComponent = new DateTimeComponent(baseTime, past);
+		nextStage(context, Stage.YEAR);
 
-			parseDate();
+		parseYear(context);
+		nextStage(context, Stage.RELATIVE);
 
-			parseRelativeDays();
+		parseRelative(context);
+		nextStage(context, Stage.HOUR_MINUTE);
 
-			parseWeekDays();
+		parseHourMinuteSeconds(context);
+		nextStage(context, Stage.MONTH);
 
-			parseMonthsDelta();
+		parseMonth(context);
+		nextStage(context, Stage.DATE);
 
-			if (this.dtmComponent.noDateTimePresent()) {
-				throw new Exception(DOES_NOT_CONTAIN_ANY_DATES_OR_TIME);
-			}
-			if (this.dtmComponent.moreDateTimePresent()) {
-				throw new Exception(CONTAIN_MORE_DATE_TIME);
-			}
+		parseDate(context);
+		nextStage(context, Stage.RELATIVE_DAYS);
 
-			result.setToDateTime(this.dtmComponent.getDateTime());
+		parseRelativeDays(context);
+		nextStage(context, Stage.WEEK_DAYS);
 
-		} catch (Exception e) {
-			LOGGER.severe(e.getMessage());
-			throw e;
+		parseWeekDays(context);
+		nextStage(context, Stage.MONTHS_DELTA);
+
+		parseMonthsDelta(context);
+		nextStage(context, Stage.RESOLVE);
+
+		if (context.dtmComponent.noDateTimePresent()) {
+			throw new Exception(DOES_NOT_CONTAIN_ANY_DATES_OR_TIME);
+		}
+		if (context.dtmComponent.moreDateTimePresent()) {
+			throw new Exception(CONTAIN_MORE_DATE_TIME);
 		}
 
+		result.setToDateTime(context.dtmComponent.getDateTime(zone));
+		result.setDatePresent(context.dtmComponent.isDatePresent());
+		result.setTimePresent(context.dtmComponent.isTimePresent());
+		if (context.timeZone != null) {
+			result.setTimezonePresent(true);
+			result.setTimezones(Collections.singletonList(context.timeZone));
+		}
+		if (context.countryRecord != null) {
+			result.setCountries(Collections.singletonList(context.countryRecord));
+		}
+		Metrics.record(Stage.RESOLVE, context.stageStart);
+		Metrics.record(Stage.PARSE, parseStart);
 		return result;
 	}
 
-	private void parseRelative() throws Exception {
-		Pattern pattern = Pattern.compile(RELATIVE_REGEX);
-		Matcher matcher = pattern.matcher(this.input);
-		boolean match = false;
-		while (matcher.find()) {
-			if (!match) {
-				String relation = matcher.group(RELATION);
-				String number = matcher.group(NUMBER);
-				String decimal = matcher.group(DECIMAL);
-				String field = matcher.group(FIELD);
-				int muliplier = 0;
-
-				if (relation.equals(PLUS)) {
-					muliplier = 1;
-				} else if (relation.equals(MINUS)) {
-					muliplier = -1;
-				}
-
-				if (decimalandNotHour(decimal, field)) {
-
-					throw new Exception(INVALID_INPUT);
-				} else if (isHour(field)) {
-					int minutes = 0;
-					int hour = 0;
-					if (decimal != null) {
-						minutes = (int) (60 * Double.parseDouble(decimal.trim()));
-						this.dtmComponent.setMinuteDelta(minutes * muliplier);
-					}
-					if (number != null) {
-						hour = Integer.parseInt(number.trim());
-						this.dtmComponent.setHourDelta(hour * muliplier);
-					}
+	private void parseRelative(ParseContext context) throws Exception {
+		for (int i = 0; i < context.tokens.size(); i++) {
+			DateTimeToken relation = context.tokens.get(i);
+			if (relation.getType() != Type.SIGN || relation.consumed || i + 1 >= context.tokens.size()) {
+				continue;
+			}
+			DateTimeToken number = context.tokens.get(i + 1);
+			if (number.getType() != Type.NUMBER || number.consumed) {
+				continue;
+			}
+			DateTimeToken field = i + 2 < context.tokens.size() && context.tokens.get(i + 2).getType() == Type.UNIT
+					? context.tokens.get(i + 2)
+					: null;
+			if (field == null || decimalandNotHour(number, field)) {
+				throw new Exception(INVALID_INPUT);
+			}
+			int muliplier = relation.getValue();
 
-				} else if (isDay(field)) {
-					if (number != null) {
-						this.dtmComponent.setDayDelta(Integer.parseInt(number.trim()) * muliplier);
-					}
-				} else if (isMonth(field)) {
-					if (number != null) {
-						this.dtmComponent.setMonthDelta(Integer.parseInt(number.trim()) * muliplier);
-					}
+			switch (field.getUnit()) {
+			case HOUR:
+				if (number.hasFraction()) {
+					context.dtmComponent.setMinuteDelta(fractionToMinutes(number) * muliplier);
 				}
-
+				context.dtmComponent.setHourDelta(number.getValue() * muliplier);
+				break;
+			case MINUTE:
+				context.dtmComponent.setMinuteDelta(number.getValue() * muliplier);
+				break;
+			case DAY:
+				context.dtmComponent.setDayDelta(number.getValue() * muliplier);
+				break;
+			case MONTH:
+				context.dtmComponent.setMonthDelta(number.getValue() * muliplier);
+				break;
 			}
-
-			this.input = this.input.replaceAll("\\" + matcher.group(), "");
+			relation.consumed = true;
+			number.consumed = true;
+			field.consumed = true;
 		}
 
 	}
 
-	private boolean isMonth(String field) {
-		return (field.equals(MONTHS) || field.equals(MONTH) || field.equals(M));
-	}
-
-	private boolean isDay(String field) {
-		return (field.equals(DAYS) || field.equals(DAY) || field.equals(D));
-	}
-
-	private boolean decimalandNotHour(String decimal, String field) {
-		return decimal != null && !(field.equals(HOUR) || field.equals(HOURS) || field.equals(H) || field.equals(HR)
-				|| field.equals(HRS));
+	private static int fractionToMinutes(DateTimeToken number) {
+		int scale = 1;
+		for (int i = 0; i < number.getFractionDigits(); i++) {
+			scale *= 10;
+		}
+		return (int) (60L * number.getFraction() / scale);
 	}
 
-	private boolean isHour(String field) {
-		return (field.equals(HOUR) || field.equals(HOURS) || field.equals(H) || field.equals(HR) || field.equals(HRS));
+	private boolean decimalandNotHour(DateTimeToken number, DateTimeToken field) {
+		return number.hasFraction() && field.getUnit() != Unit.HOUR;
 	}
 
-	private void parseHourMinuteSeconds() throws Exception {
-		Pattern pattern = Pattern.compile(HOUR_MIN_REGEX);
-		Matcher matcher = pattern.matcher(this.input);
-		boolean match = false;
-		while (matcher.find()) {
-			if (!match) {
-				String hourString = matcher.group(HOUR);
-				String minString = matcher.group("minute");
-				if (hourString != null) {
-					int hour = Integer.parseInt(matcher.group(HOUR).trim());
-					if (matcher.group("suffix") != null && matcher.group("suffix").trim().equals("pm")) {
-						hour += 12;
-					}
-					this.dtmComponent.setToHour(hour);
-				}
-
-				if (minString != null) {
-					this.dtmComponent.setToMin(Integer.parseInt(matcher.group("minute").replaceAll(":", "").trim()));
-				}
-
-				this.input = this.input.replaceAll(matcher.group(), "");
-			} else {
-				throw new Exception(CONTAIN_MORE_DATE_TIME);
+	private void parseHourMinuteSeconds(ParseContext context) throws Exception {
+		for (int i = 0; i < context.tokens.size(); i++) {
+			DateTimeToken number = context.tokens.get(i);
+			if (number.getType() != Type.NUMBER || number.consumed || number.getDigits() > 2) {
+				continue;
 			}
-
+			int hour = number.getValue();
+			if (i + 1 < context.tokens.size() && context.tokens.get(i + 1).getType() == Type.MERIDIEM) {
+				DateTimeToken suffix = context.tokens.get(i + 1);
+				hour = toTwentyFourHour(hour, suffix.getValue() == 1);
+				suffix.consumed = true;
+			}
+			context.dtmComponent.setToHour(hour);
+			if (number.hasMinute()) {
+				context.dtmComponent.setToMin(number.getMinute());
+			}
+			number.consumed = true;
 		}
 
 	}
 
-	private void parseYear() throws Exception {
+	private static int toTwentyFourHour(int hour, boolean pm) {
+		if (pm && hour < 12) {
+			return hour + 12;
+		}
+		if (!pm && hour == 12) {
+			return 0;
+		}
+		return hour;
+	}
 
-		Pattern pattern = Pattern.compile(YEAR_REGEX);
-		Matcher matcher = pattern.matcher(this.input);
-		boolean match = false;
-		while (matcher.find()) {
-			if (!match) {
-				this.dtmComponent.setToYear(Integer.parseInt(matcher.group()));
-				this.input = this.input.replaceAll(matcher.group(), "");
-			} else {
-				throw new Exception(CONTAIN_MORE_DATE_TIME);
+	private void parseYear(ParseContext context) throws Exception {
+		for (DateTimeToken token : context.tokens) {
+			if (token.getType() == Type.NUMBER && !token.consumed && token.getDigits() == YEAR_DIGITS) {
+				context.dtmComponent.setToYear(token.getValue());
+				token.consumed = true;
 			}
-
 		}
 
 	}
 
-	private void parseMonth() throws Exception {
-		Pattern pattern = Pattern.compile(MONTH_REGEX);
-		Matcher matcher = pattern.matcher(this.input);
-		boolean match = false;
-		while (matcher.find()) {
-			if (!match) {
-				this.dtmComponent.setToMonth(matcher.group());
-				this.input = this.input.replaceAll(matcher.group(), "");
-			} else {
-				throw new Exception(CONTAIN_MORE_DATE_TIME);
+	private void parseMonth(ParseContext context) throws Exception {
+		for (DateTimeToken token : context.tokens) {
+			if (token.getType() == Type.MONTH && !token.consumed) {
+				context.dtmComponent.setToMonth(token.getValue());
+				token.consumed = true;
 			}
-
 		}
 
 	}
 
-	private void parseDate() throws Exception {
-		Pattern pattern = Pattern.compile(DATE_REGEX);
-		Matcher matcher = pattern.matcher(this.input);
-		boolean match = false;
-		while (matcher.find()) {
-			if (!match) {
-				this.dtmComponent.setToDate(Integer.parseInt(matcher.group().replaceAll("st", "").replaceAll("rd", "")
-						.replaceAll("nd", "").replaceAll("th", "")));
-				this.input = this.input.replaceAll(matcher.group(), "");
-			} else {
-				throw new Exception(CONTAIN_MORE_DATE_TIME);
+	private void parseDate(ParseContext context) throws Exception {
+		for (DateTimeToken token : context.tokens) {
+			if (token.getType() == Type.ORDINAL && !token.consumed) {
+				context.dtmComponent.setToDate(token.getValue());
+				token.consumed = true;
 			}
-
 		}
 
 	}
 
-	private void parseRelativeDays() throws Exception {
-		String matchedKey = null;
-		for (String key : DateTimeUnits.getInstance().getRelativeDaysMap().keySet()) {
-			if (hasMatch(key)) {
-				if (key.equals(YESTERDAY)) {
-					matchedKey = YESTERDAY;
-				} else if (key.equals(TOMORROW)) {
-					matchedKey = TOMORROW;
-				} else {
-					matchedKey = key;
+	/**
+	 * Consume every relative day keyword. If there are several, the longest
+	 * (e.g. "day after" of "day after tomorrow") sets the day, the first one
+	 * among keywords of the same length.
+	 */
+	private void parseRelativeDays(ParseContext context) throws Exception {
+		KeywordTrie trie = DateTimeUnits.getInstance().getRelativeDaysTrie();
+		Keyword matched = null;
+		for (int i = 0; i < context.tokens.size(); i++) {
+			Keyword keyword = trie.longestMatch(context.tokens, i);
+			if (keyword != null) {
+				consume(context.tokens, i, keyword.getWords());
+				if (matched == null || keyword.getWords() > matched.getWords()) {
+					matched = keyword;
 				}
+				i += keyword.getWords() - 1;
 			}
 		}
-		if (matchedKey != null)
-			this.dtmComponent.setRelativeDayDelta(matchedKey);
+		if (matched != null)
+			context.dtmComponent.setRelativeDayDelta(matched.getText());
 
 	}
 
-	private void parseMonthsDelta() throws Exception {
-		for (String key : DateTimeUnits.getInstance().getMonthsMap().keySet()) {
-			if (hasMatch(key)) {
-				this.dtmComponent.setMonthDelta(key);
+	/**
+	 * Consume every month keyword, each different one sets a month delta.
+	 */
+	private void parseMonthsDelta(ParseContext context) throws Exception {
+		KeywordTrie trie = DateTimeUnits.getInstance().getMonthsTrie();
+		// ids of the keywords found, the months vocabulary has less than 64
+		long found = 0;
+		for (int i = 0; i < context.tokens.size(); i++) {
+			Keyword keyword = trie.longestMatch(context.tokens, i);
+			if (keyword != null) {
+				consume(context.tokens, i, keyword.getWords());
+				if ((found & 1L << keyword.getId()) == 0) {
+					found |= 1L << keyword.getId();
+					context.dtmComponent.setMonthDelta(keyword.getText());
+				}
+				i += keyword.getWords() - 1;
 			}
-
 		}
 	}
 
-	private void parseWeekDays() throws Exception {
-		for (String key : DateTimeUnits.getInstance().getWeekdayMap().keySet()) {
-			if (hasMatch(key)) {
-				this.dtmComponent.setDayDelta(key);
+	/**
+	 * Consume every week day, each different one sets a day delta.
+	 */
+	private void parseWeekDays(ParseContext context) throws Exception {
+		// week days found, by value
+		int found = 0;
+		for (DateTimeToken token : context.tokens) {
+			if (token.getType() == Type.WEEKDAY && !token.consumed) {
+				token.consumed = true;
+				if ((found & 1 << token.getValue()) == 0) {
+					found |= 1 << token.getValue();
+					context.dtmComponent.setDayDelta(token.getKeyword());
+				}
 			}
+		}
+	}
 
+	private static void consume(List<DateTimeToken> tokens, int start, int count) {
+		for (int i = start; i < start + count; i++) {
+			tokens.get(i).consumed = true;
 		}
 	}
 
-	private boolean inputHasLastorPast(String input) {
+	private boolean inputHasLastorPast(ParseContext context) {
 		boolean past = false;
-		if (hasMatch(LAST) || hasMatch(PAST)) {
+		if (hasMatch(context, LAST) || hasMatch(context, PAST)) {
 			past = true;
 		}
 		return past;
 	}
 
-	private boolean inputHasNext(String input) {
+	private boolean inputHasNext(ParseContext context) {
 		boolean next = false;
-		if (hasMatch(NEXT)) {
+		if (hasMatch(context, NEXT)) {
 			next = true;
 		}
 		return next;
 	}
 
 	/**
-	 * Extracting the time zones from the input string, so that the time zone
-	 * conversions can be handled separately.
+	 * Tokenize the input and mark the time zone and country tokens, so that the
+	 * time zone conversions can be handled separately.
 	 * 
-	 * @param input input string
+	 * @param context parse state of the current call
+	 * @param input   input string
 	 * @throws Exception Exceptions while parsing and processing the String
 	 */
-	private static String extractandCleanInput(String input) throws Exception {
-		input = input.toLowerCase();
+	private static void extractandCleanInput(ParseContext context, String input) throws Exception {
+		String text = stripAccents(input);
+		String lowerCase = text.toLowerCase();
+		if (lowerCase.length() != text.length()) {
+			// the offsets of the tokens would not fit the text as written
+			text = lowerCase;
+		}
+		context.tokens = DateTimeTokenizer.tokenize(lowerCase);
+		nextStage(context, Stage.TIME_ZONE);
 
-		timeZone = extractTimeZone(input);
-		if (timeZone != null) {
-			input = stripTimeZone(input);
+		markTimeZoneSpecifiers(context.tokens);
+		context.timeZone = extractTimeZone(text, context.tokens);
+		if (context.timeZone != null) {
+			markTimeZone(text, context.tokens);
 		}
+		nextStage(context, Stage.COUNTRY);
 
-		countryRecord = extractCountry(input);
-		if (countryRecord != null) {
-			input = stripCountry(input);
+		context.countryRecord = extractCountry(context.tokens);
+		if (context.countryRecord != null) {
+			markCountry(context.tokens, context.countryRecord);
 		}
-		input = stripTimeZoneSpecifiers(input);
-		input = stripAccentsAndSpecialCharacters(input);
-		LOGGER.fine("Cleaned Input string ==>" + input);
-		return input;
+		nextStage(context, Stage.DIRECTION);
+		LOGGER.fine(() -> "Tokenized Input string ==>" + context.tokens);
 	}
 
 	/**
-	 * Helper Method to extract time zone component from string. This method will
-	 * extract time zone abbreviation (e.g. IST), Time Zone Id (e.g. Asia/Kolkata)
+	 * Record the stage that ended and start the next one.
+	 */
+	private static void nextStage(ParseContext context, Stage next) {
+		context.stageStart = Metrics.record(context.stage, context.stageStart);
+		context.stage = next;
+	}
+
+	/**
+	 * Helper Method to extract time zone component from the tokens. This method
+	 * will extract time zone abbreviation (e.g. IST), Time Zone Id (e.g.
+	 * Asia/Kolkata), matched as written (see {@link #findZone(String)})
 	 * 
-	 * @param input Original string
-	 * @return String with all time zone text stripped
+	 * @param text   input as written, the tokens are offsets into it
+	 * @param tokens tokenized (lower cased) input
+	 * @return time zone found in the input or null
 	 * @throws Exception Exception thrown when string contains more than one time
 	 *                   zone
 	 */
-	private static ZoneId extractTimeZone(String input) throws Exception {
+	static ZoneId extractTimeZone(String text, List<DateTimeToken> tokens) throws Exception {
 
-		List<String> tokens = Arrays.asList(StringUtils.splitByWholeSeparator(input, StringUtils.SPACE));
 		TreeMap<String, ZoneId> timeZones = new TreeMap<String, ZoneId>();
-		for (ZoneId zone : availableTimeZones) {
-
-			if (tokenMatchesTZCodeOrName(tokens, zone)) {
+		for (DateTimeToken token : tokens) {
+			ZoneId zone = findTimeZone(text, token);
+			if (zone != null) {
 				timeZones.put(zone.getDisplayName(TextStyle.SHORT_STANDALONE, Locale.ENGLISH), zone);
 			}
 		}
@@ -396,20 +446,28 @@ public class DateTimeNLPParser {
 	}
 
 	/**
-	 * Helper Method to extract Country component from string. This method will
-	 * extract country name or 2 digit ISO country code or 3 digit ISO country Code
+	 * Helper Method to extract Country component from the tokens. This method will
+	 * extract country name (including multi word names such as "united states")
+	 * or 2 digit ISO country code or 3 digit ISO country Code
 	 * 
-	 * @param input Original string
-	 * @return String with country text stripped
+	 * @param tokens tokenized input
+	 * @return country found in the input or null
 	 * @throws Exception thrown when string contains more than one country
 	 */
-	private static CountryRecord extractCountry(String input) throws Exception {
+	static CountryRecord extractCountry(List<DateTimeToken> tokens) throws Exception {
 
-		List<String> tokens = tokenizeInput(input);
+		if (!hasReferenceWord(tokens)) {
+			// every country alias starts with a plain word, the reference data
+			// is not loaded for input without one
+			return null;
+		}
+		CountryIndex index = ReferenceDataUtil.getCountryIndex();
 		TreeMap<String, CountryRecord> countries = new TreeMap<String, CountryRecord>();
-		for (Entry<String, CountryRecord> entry : ReferenceDataUtil.getCountryMap().entrySet()) {
-			if (tokenMatchesCountryCodeOrName(tokens, entry)) {
-				countries.put(entry.getValue().getAlpha2Code(), entry.getValue());
+		for (int i = 0; i < tokens.size(); i++) {
+			Phrase phrase = matchCountry(index, tokens, i);
+			if (phrase != null) {
+				countries.put(phrase.getCountry().getAlpha2Code(), phrase.getCountry());
+				i += phrase.length() - 1;
 			}
 		}
 		if (countries.size() > 1) {
@@ -418,81 +476,199 @@ public class DateTimeNLPParser {
 		return countries.size() > 0 ? countries.firstEntry().getValue() : null;
 	}
 
-	private static List<String> tokenizeInput(String input) {
-		List<String> tokens = Arrays.asList(StringUtils.splitByWholeSeparator(input, StringUtils.SPACE));
+	/**
+	 * @return whether the token may name a time zone or country: a plain word
+	 *         that is not part of the date time vocabulary
+	 */
+	private static boolean isReferenceWord(DateTimeToken token) {
+		return token.getType() == Type.WORD && !DateTimeUnits.getInstance().isKeyword(token.getText());
+	}
 
-		for (int i = 0; i < tokens.size(); i++) {
-			if (isTokenPartofTimeString(tokens, i)) {
-				tokens.set(i, tokens.get(i) + "!");
+	private static boolean hasReferenceWord(List<DateTimeToken> tokens) {
+		for (DateTimeToken token : tokens) {
+			if (isReferenceWord(token)) {
+				return true;
 			}
 		}
-		return tokens;
+		return false;
 	}
 
 	/**
-	 * Helper Method to Strip any word that is related to timezone. Following words
-	 * will be stripped:
-	 * 
-	 * @param input input Original string
-	 * @return String with relevant text stripped
-	 * 
+	 * @return zone the token names as written in the text, null if none
 	 */
-	private static String stripTimeZoneSpecifiers(String input) {
+	private static ZoneId findTimeZone(String text, DateTimeToken token) {
+		return isReferenceWord(token) ? findZone(text.substring(token.getStart(), token.getEnd())) : null;
+	}
 
-		for (String specifier : SPECIFIERS) {
-			input = RegExUtils.removePattern(input, " " + specifier);
+	/**
+	 * Time zone named by a word as written: a zone id (e.g. Asia/Singapore) or
+	 * an upper case short name (e.g. SGT, CET). Lower case words are taken as
+	 * plain words, several short names are also English words ("at", "it",
+	 * "eat"). Date only input never builds the {@link TimeZoneIndex}.
+	 *
+	 * @param alias word as written
+	 * @return the zone, a region id rather than an alias where the short name
+	 *         stands for several zones, null if the word names no zone
+	 */
+	static ZoneId findZone(String alias) {
+		if (alias.indexOf('/') < 0 && !isZoneCode(alias)) {
+			return null;
 		}
-		input = StringUtils.trim(input);
-		return input;
+		if (ZoneId.SHORT_IDS.containsKey(alias)) {
+			return ZoneId.of(alias, ZoneId.SHORT_IDS);
+		}
+		List<ZoneId> zones = TimeZoneIndex.resolve(Locale.ENGLISH, alias);
+		// the alias itself (e.g. CET), else a region id (e.g. Asia/Singapore for SGT)
+		for (ZoneId candidate : zones) {
+			if (candidate.getId().equals(alias)) {
+				return candidate;
+			}
+		}
+		for (ZoneId candidate : zones) {
+			if (candidate.getId().indexOf('/') >= 0) {
+				return candidate;
+			}
+		}
+		return zones.isEmpty() ? null : zones.get(0);
 	}
 
-	private static boolean isTokenPartofTimeString(List<String> tokens, int i) {
-		return i > 0 && (tokens.get(i).equals("am") || tokens.get(i).equals("pm"))
-				&& tokens.get(i - 1).matches(TIME_REGEX);
+	private static boolean isZoneCode(String alias) {
+		if (alias.length() < 2 || alias.length() > MAX_ZONE_CODE_LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < alias.length(); i++) {
+			if (!Character.isUpperCase(alias.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	private static boolean tokenMatchesCountryCodeOrName(List<String> tokens, Entry<String, CountryRecord> entry) {
-		return tokens.contains(entry.getValue().getAlpha2Code()) || tokens.contains(entry.getValue().getAlpha3Code())
-				|| tokens.contains(entry.getValue().getCountryName());
+	/**
+	 * Mark the tokens {@link #extractTimeZone(String, List)} read as the time
+	 * zone. It accepts a single zone only, so every token naming a zone names
+	 * that one.
+	 */
+	private static void markTimeZone(String text, List<DateTimeToken> tokens) {
+		for (DateTimeToken token : tokens) {
+			if (findTimeZone(text, token) != null) {
+				token.type = Type.ZONE;
+			}
+		}
 	}
 
-	private static String stripTimeZone(String input) throws Exception {
-
-		input = RegExUtils.removePattern(input, timeZone.getDisplayName(TextStyle.SHORT, Locale.ENGLISH));
-		input = RegExUtils.removePattern(input, timeZone.getDisplayName(TextStyle.FULL, Locale.ENGLISH));
-		input = RegExUtils.removePattern(input, timeZone.getId());
-		return input;
+	/**
+	 * Mark the words that qualify a time zone (e.g. "standard time" in "pacific
+	 * standard time") as part of the zone, so that no later stage reads them.
+	 * Words of the date time vocabulary (e.g. "day" of "day after tomorrow")
+	 * are left to the grammars.
+	 */
+	private static void markTimeZoneSpecifiers(List<DateTimeToken> tokens) {
+		for (DateTimeToken token : tokens) {
+			if (isReferenceWord(token) && ReferenceDataUtil.getTimeZoneSpecifiers().contains(token.getText())) {
+				token.type = Type.ZONE;
+				token.consumed = true;
+			}
+		}
 	}
 
-	private static String stripCountry(String input) throws Exception {
-
-		input = RegExUtils.removePattern(input, countryRecord.getAlpha2Code());
-		input = RegExUtils.removePattern(input, countryRecord.getAlpha3Code());
-		input = RegExUtils.removePattern(input, countryRecord.getCountryName());
-		return input;
+	private static void markCountry(List<DateTimeToken> tokens, CountryRecord countryRecord) {
+		CountryIndex index = ReferenceDataUtil.getCountryIndex();
+		for (int i = 0; i < tokens.size(); i++) {
+			Phrase phrase = matchCountry(index, tokens, i);
+			if (phrase != null) {
+				if (phrase.getCountry() == countryRecord) {
+					// the country is removed from the input, no later stage may
+					// read its words as keywords (e.g. "jan" in "svalbard and jan mayen")
+					for (int word = 0; word < phrase.length(); word++) {
+						tokens.get(i + word).type = Type.COUNTRY;
+						tokens.get(i + word).consumed = true;
+					}
+				}
+				i += phrase.length() - 1;
+			}
+		}
 	}
 
-	private static String stripAccentsAndSpecialCharacters(String input) throws Exception {
+	/**
+	 * Longest country alias starting at the token. The first token has to be a
+	 * plain word, the following ones may also be month or week day names (e.g.
+	 * "svalbard and jan mayen").
+	 */
+	private static Phrase matchCountry(CountryIndex index, List<DateTimeToken> tokens, int start) {
+		DateTimeToken first = tokens.get(start);
+		if (!isReferenceWord(first)) {
+			return null;
+		}
+		for (Phrase phrase : index.findPhrases(first.getText())) {
+			if (start + phrase.length() <= tokens.size() && matchesRemainingWords(phrase, tokens, start)) {
+				return phrase;
+			}
+		}
+		return null;
+	}
 
-		input = StringUtils.stripAccents(input);
-		input = RegExUtils.removePattern(input, "[^A-Za-z0-9\\s\\+\\-\\.:]");
-		return input;
+	private static boolean matchesRemainingWords(Phrase phrase, List<DateTimeToken> tokens, int start) {
+		for (int word = 1; word < phrase.length(); word++) {
+			DateTimeToken token = tokens.get(start + word);
+			if ((token.getType() != Type.WORD && token.getType() != Type.MONTH && token.getType() != Type.WEEKDAY)
+					|| !token.textEquals(phrase.getWord(word))) {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	private static boolean tokenMatchesTZCodeOrName(List<String> tokens, ZoneId zone) {
-		return tokens.contains(zone.getDisplayName(TextStyle.SHORT, Locale.ENGLISH))
-				|| tokens.contains(zone.getDisplayName(TextStyle.FULL, Locale.ENGLISH))
-				|| tokens.contains(zone.getId());
+	private static String stripAccents(String input) {
+		for (int i = 0; i < input.length(); i++) {
+			if (input.charAt(i) > ASCII_MAX) {
+				return StringUtils.stripAccents(input);
+			}
+		}
+		return input;
 	}
 
-	private boolean hasMatch(String regex) {
-		Pattern pattern = Pattern.compile(regex);
-		Matcher matcher = pattern.matcher(this.input);
+	/**
+	 * Match a keyword (one or more space separated words) against the unconsumed
+	 * tokens. Every occurrence is consumed, so that later stages do not see it
+	 * again.
+	 * 
+	 * @param keyword keyword from {@link DateTimeUnits} or a literal constant
+	 * @return true if the keyword was found at least once
+	 */
+	private boolean hasMatch(ParseContext context, String keyword) {
 		boolean match = false;
-		while (matcher.find()) {
-			match = true;
-			this.input = this.input.replaceAll(matcher.group(), "");
+		for (int i = 0; i < context.tokens.size(); i++) {
+			int end = matchKeywordAt(context, keyword, i);
+			if (end > i) {
+				for (int j = i; j < end; j++) {
+					context.tokens.get(j).consumed = true;
+				}
+				match = true;
+				i = end - 1;
+			}
 		}
 		return match;
 	}
+
+	private int matchKeywordAt(ParseContext context, String keyword, int index) {
+		int wordStart = 0;
+		int tokenIndex = index;
+		while (true) {
+			int space = keyword.indexOf(' ', wordStart);
+			int wordEnd = space < 0 ? keyword.length() : space;
+			if (tokenIndex >= context.tokens.size()) {
+				return -1;
+			}
+			DateTimeToken token = context.tokens.get(tokenIndex);
+			if (token.consumed || !token.regionEquals(keyword, wordStart, wordEnd - wordStart)) {
+				return -1;
+			}
+			tokenIndex++;
+			if (space < 0) {
+				return tokenIndex;
+			}
+			wordStart = space + 1;
+		}
+	}
 }
@@ -0,0 +1,133 @@
+package com.vigneshbala.twi.nlp;
+
+/**
+ * A single typed token produced by {@link DateTimeTokenizer}. Tokens keep the
+ * offsets into the (lower cased) input instead of copying the text, the text
+ * is only materialised when a caller asks for it.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DateTimeToken {
+
+	public enum Type {
+		NUMBER, ORDINAL, MONTH, WEEKDAY, MERIDIEM, SIGN, UNIT, ZONE, COUNTRY, WORD
+	}
+
+	public enum Unit {
+		MINUTE, HOUR, DAY, MONTH
+	}
+
+	private final String source;
+	private final int start;
+	private final int end;
+	Type type;
+	int value;
+	int digits;
+	int fraction = -1;
+	int fractionDigits;
+	int minute = -1;
+	Unit unit;
+	String keyword;
+	boolean attached;
+	boolean consumed;
+	private String text;
+
+	DateTimeToken(String source, Type type, int start, int end) {
+		this.source = source;
+		this.type = type;
+		this.start = start;
+		this.end = end;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public int getStart() {
+		return start;
+	}
+
+	public int getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return numeric value of the token. Number or ordinal value, month number
+	 *         (1-12), weekday as per {@link DateTimeUnits}, +1/-1 for signs and 0
+	 *         (am) or 1 (pm) for meridiem.
+	 */
+	public int getValue() {
+		return value;
+	}
+
+	public int getDigits() {
+		return digits;
+	}
+
+	public boolean hasFraction() {
+		return fraction >= 0;
+	}
+
+	public int getFraction() {
+		return fraction;
+	}
+
+	public int getFractionDigits() {
+		return fractionDigits;
+	}
+
+	public boolean hasMinute() {
+		return minute >= 0;
+	}
+
+	public int getMinute() {
+		return minute;
+	}
+
+	public Unit getUnit() {
+		return unit;
+	}
+
+	/**
+	 * @return the canonical vocabulary key of a month or weekday token (e.g.
+	 *         "mon" for "monday")
+	 */
+	public String getKeyword() {
+		return keyword;
+	}
+
+	/**
+	 * @return true if the token was written without a space after the previous
+	 *         token, e.g. "pm" in "8pm" or "h" in "+2h"
+	 */
+	public boolean isAttached() {
+		return attached;
+	}
+
+	public int length() {
+		return end - start;
+	}
+
+	public boolean textEquals(String word) {
+		return word.length() == length() && source.regionMatches(start, word, 0, word.length());
+	}
+
+	boolean regionEquals(String other, int offset, int length) {
+		return length == length() && source.regionMatches(start, other, offset, length);
+	}
+
+	public String getText() {
+		if (text == null) {
+			text = source.substring(start, end);
+		}
+		return text;
+	}
+
+	@Override
+	public String toString() {
+		return type + "(" + getText() + ")";
+	}
+
+}
@@ -0,0 +1,243 @@
+package com.vigneshbala.twi.nlp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vigneshbala.twi.nlp.DateTimeToken.Type;
+import com.vigneshbala.twi.nlp.DateTimeToken.Unit;
+
+/**
+ * Single pass lexer for the date time parser. The (lower cased) input is
+ * scanned once from left to right and split into typed tokens, so the grammar
+ * stages in {@link DateTimeNLPParser} never have to compile or re-run regular
+ * expressions on the input.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DateTimeTokenizer {
+
+	private static final String[] MONTH_NAMES = { "january", "february", "march", "april", "may", "june", "july",
+			"august", "september", "october", "november", "december" };
+	// Ordered as per the weekday values in DateTimeUnits (sun = 0)
+	private static final String[] WEEKDAY_NAMES = { "sunday", "monday", "tuesday", "wednesday", "thursday", "friday",
+			"saturday" };
+	private static final String[] MONTH_KEYS = { "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep",
+			"oct", "nov", "dec" };
+	private static final String[] WEEKDAY_KEYS = { "sun", "mon", "tue", "wed", "thu", "fri", "sat" };
+	private static final String[] ORDINAL_SUFFIXES = { "st", "nd", "rd", "th" };
+	private static final String[] MINUTE_UNITS = { "min", "mins" };
+	private static final String[] HOUR_UNITS = { "h", "hr", "hrs", "hour", "hours" };
+	private static final String[] DAY_UNITS = { "d", "day", "days" };
+	private static final String[] MONTH_UNITS = { "m", "month", "months" };
+	private static final String AM = "am";
+	private static final String PM = "pm";
+	private static final int MIN_ABBREVIATION_LENGTH = 3;
+	private static final int MAX_DIGITS = 9;
+
+	private DateTimeTokenizer() {
+	}
+
+	/**
+	 * Split the input into tokens. Anything that is not a letter, digit or a
+	 * sign/time separator is treated as white space.
+	 *
+	 * @param input lower cased input string
+	 * @return tokens in the order they appear in the input
+	 */
+	public static List<DateTimeToken> tokenize(String input) {
+		List<DateTimeToken> tokens = new ArrayList<>();
+		int length = input.length();
+		int index = 0;
+		boolean attached = false;
+		while (index < length) {
+			char c = input.charAt(index);
+			if (isDigit(c)) {
+				index = readNumber(input, index, tokens, attached);
+				attached = true;
+			} else if ((c == '+' || c == '-') && index + 1 < length && isDigit(input.charAt(index + 1))) {
+				DateTimeToken sign = new DateTimeToken(input, Type.SIGN, index, index + 1);
+				sign.value = c == '+' ? 1 : -1;
+				sign.attached = attached;
+				tokens.add(sign);
+				index++;
+				attached = true;
+			} else if (Character.isLetter(c)) {
+				index = readWord(input, index, tokens, attached);
+				attached = true;
+			} else {
+				index++;
+				attached = false;
+			}
+		}
+		return tokens;
+	}
+
+	private static int readNumber(String input, int start, List<DateTimeToken> tokens, boolean attached) {
+		int length = input.length();
+		int index = start;
+		int value = 0;
+		while (index < length && isDigit(input.charAt(index))) {
+			if (index - start < MAX_DIGITS) {
+				value = value * 10 + (input.charAt(index) - '0');
+			}
+			index++;
+		}
+		int digits = index - start;
+		int minute = -1;
+		int fraction = -1;
+		int fractionDigits = 0;
+		if (index + 1 < length && isDigit(input.charAt(index + 1))) {
+			if (input.charAt(index) == ':') {
+				index++;
+				minute = 0;
+				int minuteStart = index;
+				while (index < length && isDigit(input.charAt(index))) {
+					if (index - minuteStart < MAX_DIGITS) {
+						minute = minute * 10 + (input.charAt(index) - '0');
+					}
+					index++;
+				}
+			} else if (input.charAt(index) == '.') {
+				index++;
+				fraction = 0;
+				int fractionStart = index;
+				while (index < length && isDigit(input.charAt(index))) {
+					if (index - fractionStart < MAX_DIGITS) {
+						fraction = fraction * 10 + (input.charAt(index) - '0');
+						fractionDigits++;
+					}
+					index++;
+				}
+			}
+		}
+
+		int suffixEnd = wordEnd(input, index);
+		if (minute < 0 && fraction < 0 && suffixEnd > index && isOrdinalSuffix(input, index, suffixEnd)) {
+			DateTimeToken ordinal = new DateTimeToken(input, Type.ORDINAL, start, suffixEnd);
+			ordinal.value = value;
+			ordinal.digits = digits;
+			ordinal.attached = attached;
+			tokens.add(ordinal);
+			return suffixEnd;
+		}
+
+		DateTimeToken number = new DateTimeToken(input, Type.NUMBER, start, index);
+		number.value = value;
+		number.digits = digits;
+		number.minute = minute;
+		number.fraction = fraction;
+		number.fractionDigits = fractionDigits;
+		number.attached = attached;
+		tokens.add(number);
+		return index;
+	}
+
+	private static int readWord(String input, int start, List<DateTimeToken> tokens, boolean attached) {
+		int end = wordEnd(input, start);
+		DateTimeToken previous = tokens.isEmpty() ? null : tokens.get(tokens.size() - 1);
+		DateTimeToken word = new DateTimeToken(input, Type.WORD, start, end);
+		word.attached = attached;
+		classifyWord(input, word, previous);
+		tokens.add(word);
+		return end;
+	}
+
+	private static void classifyWord(String input, DateTimeToken word, DateTimeToken previous) {
+		int month = abbreviationIndex(input, word, MONTH_NAMES);
+		if (month >= 0) {
+			word.type = Type.MONTH;
+			word.value = month + 1;
+			word.keyword = MONTH_KEYS[month];
+			return;
+		}
+		int weekday = abbreviationIndex(input, word, WEEKDAY_NAMES);
+		if (weekday >= 0) {
+			word.type = Type.WEEKDAY;
+			word.value = weekday;
+			word.keyword = WEEKDAY_KEYS[weekday];
+			return;
+		}
+		if (previous == null || previous.type != Type.NUMBER) {
+			return;
+		}
+		if (word.textEquals(AM) || word.textEquals(PM)) {
+			word.type = Type.MERIDIEM;
+			word.value = word.textEquals(PM) ? 1 : 0;
+		} else if (matchesAny(word, HOUR_UNITS)) {
+			word.type = Type.UNIT;
+			word.unit = Unit.HOUR;
+		} else if (matchesAny(word, DAY_UNITS)) {
+			word.type = Type.UNIT;
+			word.unit = Unit.DAY;
+		} else if (matchesAny(word, MONTH_UNITS)) {
+			word.type = Type.UNIT;
+			word.unit = Unit.MONTH;
+		} else if (matchesAny(word, MINUTE_UNITS)) {
+			word.type = Type.UNIT;
+			word.unit = Unit.MINUTE;
+		}
+	}
+
+	/**
+	 * Month and week day names can be written in full or abbreviated to any
+	 * prefix of at least three letters, e.g. "sep", "sept" or "september".
+	 */
+	private static int abbreviationIndex(String input, DateTimeToken word, String[] names) {
+		int length = word.length();
+		if (length < MIN_ABBREVIATION_LENGTH) {
+			return -1;
+		}
+		for (int i = 0; i < names.length; i++) {
+			if (length <= names[i].length() && input.regionMatches(word.getStart(), names[i], 0, length)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean matchesAny(DateTimeToken word, String[] candidates) {
+		for (String candidate : candidates) {
+			if (word.textEquals(candidate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isOrdinalSuffix(String input, int start, int end) {
+		for (String suffix : ORDINAL_SUFFIXES) {
+			if (end - start == suffix.length() && input.regionMatches(start, suffix, 0, suffix.length())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Words are runs of letters, a hyphen, slash or underscore followed by a
+	 * letter keeps the word going (e.g. "guinea-bissau").
+	 */
+	private static int wordEnd(String input, int start) {
+		int length = input.length();
+		int index = start;
+		while (index < length) {
+			char c = input.charAt(index);
+			if (Character.isLetter(c)) {
+				index++;
+			} else if (index > start && (c == '-' || c == '/' || c == '_') && index + 1 < length
+					&& Character.isLetter(input.charAt(index + 1))) {
+				index++;
+			} else {
+				break;
+			}
+		}
+		return index;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+}
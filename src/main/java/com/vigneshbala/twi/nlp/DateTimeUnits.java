@@ -1,25 +1,39 @@
 package com.vigneshbala.twi.nlp;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Vocabulary of the date time parser. The maps are built once when the class
+ * is initialised and are read only afterwards, so the instance can be shared
+ * across threads.
+ */
 public class DateTimeUnits {
 
-	private Map<String, Integer> weekdayMap = new HashMap<>();
-	private Map<String, Integer> monthsMap = new HashMap<>();
-	private Map<String, Integer> relativeDaysMap = new HashMap<>();
-	private Map<String, Integer> relativeHoursMap = new HashMap<>();
+	private final Map<String, Integer> weekdayMap;
+	private final Map<String, Integer> monthsMap;
+	private final Map<String, Integer> relativeDaysMap;
+	private final Map<String, Integer> relativeHoursMap;
+	private final Set<String> keywords;
+	private final KeywordTrie relativeDaysTrie;
+	private final KeywordTrie monthsTrie;
 
-	private static DateTimeUnits instance = null;
+	private static final DateTimeUnits INSTANCE = new DateTimeUnits();
 
 	public static DateTimeUnits getInstance() {
-		if (instance == null) {
-			instance = new DateTimeUnits();
-		}
-		return instance;
+		return INSTANCE;
 	}
 
 	private DateTimeUnits() {
+		Map<String, Integer> weekdayMap = new HashMap<>();
+		Map<String, Integer> monthsMap = new HashMap<>();
+		Map<String, Integer> relativeDaysMap = new HashMap<>();
+		Map<String, Integer> relativeHoursMap = new HashMap<>();
+
 		weekdayMap.put("sun", 0);
 		weekdayMap.put("mon", 1);
 		weekdayMap.put("tue", 2);
@@ -58,6 +72,24 @@ public class DateTimeUnits {
 		relativeHoursMap.put("hours from now", 1);
 		relativeHoursMap.put("hours before now", 1);
 
+		this.weekdayMap = Collections.unmodifiableMap(weekdayMap);
+		this.monthsMap = Collections.unmodifiableMap(monthsMap);
+		this.relativeDaysMap = Collections.unmodifiableMap(relativeDaysMap);
+		this.relativeHoursMap = Collections.unmodifiableMap(relativeHoursMap);
+
+		// month and week day names are never plain words, the tokenizer types them
+		Set<String> keywords = new HashSet<>();
+		for (Map<String, Integer> map : Arrays.asList(monthsMap, relativeDaysMap, relativeHoursMap)) {
+			for (String key : map.keySet()) {
+				if (map != monthsMap || key.indexOf(' ') >= 0) {
+					keywords.addAll(Arrays.asList(key.split(" ")));
+				}
+			}
+		}
+		this.keywords = Collections.unmodifiableSet(keywords);
+
+		this.relativeDaysTrie = new KeywordTrie(relativeDaysMap.keySet());
+		this.monthsTrie = new KeywordTrie(monthsMap.keySet());
 	}
 
 	public boolean isWeekDay(String day) {
@@ -80,6 +112,15 @@ public class DateTimeUnits {
 
 	}
 
+	/**
+	 * @param word single lower case word
+	 * @return whether the word is a plain word of the vocabulary (e.g. "day" of
+	 *         "day after"), such a word is never a time zone or country
+	 */
+	public boolean isKeyword(String word) {
+		return keywords.contains(word);
+	}
+
 	public Integer getWeekDay(String day) {
 		return weekdayMap.get(day);
 	}
@@ -111,6 +152,24 @@ public class DateTimeUnits {
 	public Map<String, Integer> getRelativeHoursMap() {
 		return relativeHoursMap;
 	}
+
+	public Set<String> getKeywords() {
+		return keywords;
+	}
+
+	/**
+	 * @return the keys of the relative days map, compiled for matching
+	 */
+	KeywordTrie getRelativeDaysTrie() {
+		return relativeDaysTrie;
+	}
+
+	/**
+	 * @return the keys of the months map, compiled for matching
+	 */
+	KeywordTrie getMonthsTrie() {
+		return monthsTrie;
+	}
 	
 	
 }
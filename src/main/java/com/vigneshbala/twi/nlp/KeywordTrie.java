@@ -0,0 +1,131 @@
+package com.vigneshbala.twi.nlp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Word trie over a set of keywords (one or more space separated words), built
+ * once and shared across threads. Matching walks the unconsumed tokens from a
+ * start token and returns the longest keyword, so a scan over the tokens finds
+ * every keyword occurrence in one pass, independent of the order the keywords
+ * were given in.
+ *
+ * The vocabulary is small, so the children of a node are kept in a list and
+ * compared in place against the token text, which needs no substring.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+final class KeywordTrie {
+
+	/**
+	 * A keyword of the trie.
+	 */
+	static final class Keyword {
+		private final String text;
+		private final int words;
+		private final int id;
+
+		private Keyword(String text, int words, int id) {
+			this.text = text;
+			this.words = words;
+			this.id = id;
+		}
+
+		/**
+		 * @return the keyword as given, a key of the {@link DateTimeUnits} maps
+		 */
+		String getText() {
+			return text;
+		}
+
+		/**
+		 * @return number of tokens the keyword spans
+		 */
+		int getWords() {
+			return words;
+		}
+
+		/**
+		 * @return index of the keyword in sorted order, between 0 and
+		 *         {@link KeywordTrie#size()}
+		 */
+		int getId() {
+			return id;
+		}
+	}
+
+	private static final class Node {
+		private final List<String> words = new ArrayList<>(2);
+		private final List<Node> children = new ArrayList<>(2);
+		private Keyword keyword;
+
+		private Node child(String word) {
+			for (int i = 0; i < words.size(); i++) {
+				if (words.get(i).equals(word)) {
+					return children.get(i);
+				}
+			}
+			Node child = new Node();
+			words.add(word);
+			children.add(child);
+			return child;
+		}
+
+		private Node next(DateTimeToken token) {
+			for (int i = 0; i < words.size(); i++) {
+				if (token.textEquals(words.get(i))) {
+					return children.get(i);
+				}
+			}
+			return null;
+		}
+	}
+
+	private final Node root = new Node();
+	private final int size;
+
+	KeywordTrie(Collection<String> keywords) {
+		// sorted, so that the ids do not depend on the iteration order of a map
+		int id = 0;
+		for (String text : new TreeSet<>(keywords)) {
+			String[] words = text.split(" ");
+			Node node = root;
+			for (String word : words) {
+				node = node.child(word);
+			}
+			node.keyword = new Keyword(text, words.length, id++);
+		}
+		this.size = id;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param tokens tokens of the input
+	 * @param start  index of the first token
+	 * @return the longest keyword made of the unconsumed tokens from the start,
+	 *         null if none
+	 */
+	Keyword longestMatch(List<DateTimeToken> tokens, int start) {
+		Keyword match = null;
+		Node node = root;
+		for (int i = start; i < tokens.size(); i++) {
+			DateTimeToken token = tokens.get(i);
+			node = token.consumed ? null : node.next(token);
+			if (node == null) {
+				break;
+			}
+			if (node.keyword != null) {
+				match = node.keyword;
+			}
+		}
+		return match;
+	}
+
+}
@@ -0,0 +1,253 @@
+package com.vigneshbala.twi.nlp;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.vigneshbala.twi.model.ParserResult;
+
+/**
+ * Bounded memo of {@link DateTimeNLPParser#parse(String, ZonedDateTime, String)}
+ * results for workloads that convert the same few phrases over and over.
+ *
+ * Entries are keyed by the normalized input (white space runs collapsed,
+ * trimmed; the case is kept, it tells a time zone like "SGT" from a word), the base time truncated to the configured granularity
+ * and the zone of the base time. The input is parsed against the truncated
+ * base time, so a cached answer is exactly what the parser returns for that
+ * key: with a granularity of minutes "+2h" asked at 10:00:30 and at 10:00:45
+ * both answer 12:00:00. Without a granularity the base time is used as is.
+ *
+ * Entries are evicted least recently used first once the cache is full, and
+ * expire after the time to live. Failed parses are not cached. The cache
+ * assumes the reference data does not change while it is in use.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class ParseCache {
+
+	public static final int DEFAULT_MAX_SIZE = 4096;
+	public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(10);
+
+	private final DateTimeNLPParser parser;
+	private final int maxSize;
+	private final long timeToLiveNanos;
+	private final TemporalUnit granularity;
+	// access ordered, guarded by itself; parsing happens outside the lock
+	private final LinkedHashMap<Key, CachedResult> entries;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+	private final LongAdder loadNanos = new LongAdder();
+
+	/**
+	 * @param parser      parser answering the misses
+	 * @param maxSize     maximum number of cached results
+	 * @param timeToLive  how long a result is kept after it was parsed
+	 * @param granularity unit the base time is truncated to (e.g. MINUTES), null
+	 *                    to key by the exact base time
+	 * @throws IllegalArgumentException if the size or time to live is not
+	 *                                  positive, or the base time cannot be
+	 *                                  truncated to the granularity
+	 */
+	public ParseCache(DateTimeNLPParser parser, int maxSize, Duration timeToLive, TemporalUnit granularity) {
+		if (maxSize < 1 || timeToLive.isNegative() || timeToLive.isZero()) {
+			throw new IllegalArgumentException("Parse cache size and time to live must be positive");
+		}
+		if (granularity != null) {
+			try {
+				ZonedDateTime.now().truncatedTo(granularity);
+			} catch (RuntimeException e) {
+				throw new IllegalArgumentException("Unsupported parse cache granularity: " + granularity, e);
+			}
+		}
+		this.parser = parser;
+		this.maxSize = maxSize;
+		this.timeToLiveNanos = timeToLive.toNanos();
+		this.granularity = granularity;
+		this.entries = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+				if (size() > ParseCache.this.maxSize) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Same contract as {@link DateTimeNLPParser#parse(String, ZonedDateTime, String)},
+	 * answered from the cache when possible.
+	 */
+	public ParserResult parse(String input, ZonedDateTime dateTime, String format) throws Exception {
+		ZonedDateTime baseTime = dateTime == null ? ZonedDateTime.now() : dateTime;
+		if (granularity != null) {
+			baseTime = baseTime.truncatedTo(granularity);
+		}
+		Key key = new Key(normalize(input), baseTime);
+		ParserResult cached = lookup(key);
+		if (cached != null) {
+			hits.increment();
+			return cached.withFormat(format);
+		}
+		misses.increment();
+		long start = System.nanoTime();
+		try {
+			ParserResult result = parser.parse(key.input, baseTime, format);
+			synchronized (entries) {
+				// a private copy, callers may change the result they get
+				entries.put(key, new CachedResult(result.withFormat(format), System.nanoTime() + timeToLiveNanos));
+			}
+			return result;
+		} finally {
+			loadNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	private ParserResult lookup(Key key) {
+		synchronized (entries) {
+			CachedResult entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			if (System.nanoTime() - entry.expiresAt >= 0) {
+				entries.remove(key);
+				expirations.increment();
+				return null;
+			}
+			return entry.result;
+		}
+	}
+
+	/**
+	 * Lower case the input and collapse white space. The tokenizer treats any
+	 * run of white space as a single separator, so this never changes the
+	 * parse.
+	 */
+	static String normalize(String input) {
+		StringBuilder sb = new StringBuilder(input.length());
+		boolean space = false;
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (Character.isWhitespace(c)) {
+				space = sb.length() > 0;
+			} else {
+				if (space) {
+					sb.append(' ');
+					space = false;
+				}
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return entries dropped because the cache was full
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return entries dropped because they outlived the time to live
+	 */
+	public long getExpirations() {
+		return expirations.sum();
+	}
+
+	/**
+	 * @return time spent parsing misses, in nanoseconds
+	 */
+	public long getLoadNanos() {
+		return loadNanos.sum();
+	}
+
+	/**
+	 * @return hits per lookup between 0 and 1, 0 before the first lookup
+	 */
+	public double getHitRate() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	public String getStatistics() {
+		long missCount = getMisses();
+		return String.format(
+				"parse cache: %d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions, %d expirations, %.1fus mean load",
+				size(), getHits(), missCount, getHitRate() * 100, getEvictions(), getExpirations(),
+				missCount == 0 ? 0 : getLoadNanos() / 1000.0 / missCount);
+	}
+
+	private static final class Key {
+		private final String input;
+		// equality covers the local date time, offset and zone
+		private final ZonedDateTime baseTime;
+		private final int hash;
+
+		Key(String input, ZonedDateTime baseTime) {
+			this.input = input;
+			this.baseTime = baseTime;
+			this.hash = 31 * input.hashCode() + baseTime.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && input.equals(other.input) && baseTime.equals(other.baseTime);
+		}
+	}
+
+	private static final class CachedResult {
+		private final ParserResult result;
+		private final long expiresAt;
+
+		CachedResult(ParserResult result, long expiresAt) {
+			this.result = result;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
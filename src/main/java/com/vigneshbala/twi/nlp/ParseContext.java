@@ -0,0 +1,26 @@
+package com.vigneshbala.twi.nlp;
+
+import java.time.ZoneId;
+import java.util.List;
+
+import com.vigneshbala.twi.model.CountryRecord;
+import com.vigneshbala.twi.metrics.Stage;
+import com.vigneshbala.twi.model.DateTimeComponent;
+
+/**
+ * Working state of a single {@link DateTimeNLPParser#parse} call. A new
+ * context is created for every call and never shared between threads.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+class ParseContext {
+	List<DateTimeToken> tokens;
+	DateTimeComponent dtmComponent;
+	ZoneId timeZone;
+	CountryRecord countryRecord;
+	// stage running and its start time, see Metrics
+	Stage stage;
+	long stageStart;
+}
@@ -0,0 +1,126 @@
+package com.vigneshbala.twi.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Thin client of {@link DaemonServer}. Forwards the command line arguments to a
+ * running daemon and prints its output, so the call costs a loopback round
+ * trip instead of a full start up. The client deliberately uses only JDK
+ * classes, picocli and the conversion code are never loaded when a daemon
+ * answers.
+ *
+ * Forwarding is opt in, with {@value #OPTION} or the
+ * {@value #ENVIRONMENT_VARIABLE} environment variable. Whatever listens on the
+ * port has to echo the protocol magic within {@value #HANDSHAKE_TIMEOUT_MILLIS}
+ * ms, otherwise the call runs locally.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DaemonClient {
+
+	public static final String OPTION = "--daemon-client";
+	public static final String ENVIRONMENT_VARIABLE = "TWI_DAEMON_CLIENT";
+
+	private static final int CONNECT_TIMEOUT_MILLIS = 200;
+	private static final int HANDSHAKE_TIMEOUT_MILLIS = 500;
+	private static final int READ_TIMEOUT_MILLIS = 30000;
+
+	private DaemonClient() {
+	}
+
+	/**
+	 * @param args command line arguments
+	 * @return true if the caller asked for the command to go to the daemon,
+	 *         with {@value #OPTION} or {@value #ENVIRONMENT_VARIABLE}=true
+	 */
+	public static boolean isRequested(String[] args) {
+		for (String arg : args) {
+			if (arg.equals(OPTION)) {
+				return true;
+			}
+		}
+		String enabled = System.getenv(ENVIRONMENT_VARIABLE);
+		return enabled != null && (enabled.trim().equalsIgnoreCase("true") || enabled.trim().equals("1"));
+	}
+
+	/**
+	 * @param args command line arguments
+	 * @return the arguments without {@value #OPTION}, as the daemon runs them
+	 */
+	public static String[] withoutClientOption(String[] args) {
+		List<String> forwarded = new ArrayList<>(args.length);
+		for (String arg : args) {
+			if (!arg.equals(OPTION)) {
+				forwarded.add(arg);
+			}
+		}
+		return forwarded.toArray(new String[forwarded.size()]);
+	}
+
+	/**
+	 * Run the command on the daemon listening on the port.
+	 *
+	 * @param port loopback port of the daemon
+	 * @param args command line arguments
+	 * @param out  receives the STDOUT of the command
+	 * @param err  receives the STDERR of the command
+	 * @return exit code of the command, null if no daemon is running, it refused
+	 *         the command or the listener did not answer as a daemon, in which
+	 *         case the caller runs it locally
+	 */
+	public static Integer forward(int port, String[] args, PrintStream out, PrintStream err) {
+		if (DaemonProtocol.requiresLocalExecution(args)) {
+			return null;
+		}
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MILLIS);
+			socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+			DataOutputStream request = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			request.writeInt(DaemonProtocol.MAGIC);
+			request.writeInt(DaemonProtocol.VERSION);
+			request.writeUTF(ZoneId.systemDefault().getId());
+			request.writeUTF(Locale.getDefault().toLanguageTag());
+			request.writeInt(args.length);
+			for (String arg : args) {
+				request.writeUTF(arg);
+			}
+			request.flush();
+
+			DataInputStream response = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			// anything but a daemon of the same protocol is not trusted with the call
+			if (response.readInt() != DaemonProtocol.MAGIC) {
+				return null;
+			}
+			socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+			if (response.readInt() != DaemonProtocol.STATUS_OK) {
+				return null;
+			}
+			int exitCode = response.readInt();
+			String stdout = DaemonProtocol.readText(response);
+			String stderr = DaemonProtocol.readText(response);
+			out.print(stdout);
+			out.flush();
+			err.print(stderr);
+			err.flush();
+			return exitCode;
+		} catch (IOException e) {
+			// no daemon (or it went away before answering), run locally
+			return null;
+		}
+	}
+
+}
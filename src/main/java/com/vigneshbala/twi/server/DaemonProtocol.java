@@ -0,0 +1,88 @@
+package com.vigneshbala.twi.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format between {@link DaemonClient} and {@link DaemonServer}. One
+ * request and one response per connection:
+ *
+ * Request: magic, protocol version, client time zone id, client locale tag,
+ * argument count and the arguments.
+ *
+ * Response: magic, sent as soon as the request header is read, then status,
+ * exit code, STDOUT text and STDERR text. A request with the wrong magic or
+ * version gets only the refused status.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+final class DaemonProtocol {
+
+	static final int MAGIC = 0x54574944;
+	static final int VERSION = 2;
+
+	/** The command ran, exit code and output follow. */
+	static final int STATUS_OK = 0;
+	/**
+	 * The daemon cannot run the command the way the client would (different
+	 * time zone or locale, or the command reads STDIN), run it locally.
+	 */
+	static final int STATUS_REFUSED = 1;
+
+	private DaemonProtocol() {
+	}
+
+	static void writeText(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readText(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Commands that read STDIN (batch mode), read or write files relative to the
+	 * caller's directory, start a server or ask for local execution always run
+	 * in the calling process. So do commands with a picocli argument file
+	 * (@file), which the daemon would expand in its own directory.
+	 *
+	 * The check only looks at the argument strings, so that the client does not
+	 * load picocli: short options are read the way picocli reads a cluster
+	 * (e.g. -bp2, -bfdd/MM/yyyy).
+	 *
+	 * @param args command line arguments
+	 * @return true if the arguments must not be forwarded to a daemon
+	 */
+	static boolean requiresLocalExecution(String[] args) {
+		for (String arg : args) {
+			if (arg.startsWith("@") || arg.startsWith("--daemon") || arg.startsWith("--http")
+					|| arg.startsWith("--batch") || arg.startsWith("--file") || arg.startsWith("--parallel")
+					|| arg.startsWith("--output") || arg.startsWith("--scan")) {
+				return true;
+			}
+			if (isLocalShortOptionCluster(arg)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if the argument is a cluster of short options starting with
+	 *         -b or -p. The other short options (-f, -z, -o) take the rest of the
+	 *         cluster as their value, and -b is the only flag, so -b and -p can
+	 *         only be first (e.g. -bp2, -bfdd/MM/yyyy).
+	 */
+	private static boolean isLocalShortOptionCluster(String arg) {
+		return arg.length() >= 2 && arg.charAt(0) == '-' && (arg.charAt(1) == 'b' || arg.charAt(1) == 'p');
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.vigneshbala.twi.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vigneshbala.twi.util.ReferenceDataUtil;
+import com.vigneshbala.twi.util.TimeZoneIndex;
+
+import picocli.CommandLine;
+
+/**
+ * Keeps twi resident so that repeated invocations do not pay for JVM start up,
+ * class loading and JIT warm up. The daemon listens on a loopback port, runs
+ * the arguments forwarded by {@link DaemonClient} through the same picocli
+ * command as the CLI and sends back the exit code and the captured output.
+ *
+ * Only loopback connections are accepted. Commands run on a fixed pool of
+ * worker threads, each worker reuses its own {@link CommandLine} (picocli
+ * resets the options to their defaults on every parse).
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DaemonServer implements Closeable {
+
+	public static final int DEFAULT_PORT = 7071;
+	public static final String PORT_ENVIRONMENT_VARIABLE = "TWI_DAEMON_PORT";
+
+	private static final int SOCKET_TIMEOUT_MILLIS = 30000;
+	private static final String[][] WARM_UP_COMMANDS = { { "tomorrow 8 pm", "-z", "UTC" },
+			{ "23rd July 7:30 AM", "-o", "+05:30" }, { "+2.5h", "-z", "Asia/Singapore" } };
+
+	private final static Logger LOGGER = Logger.getLogger(DaemonServer.class.getName());
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService workers;
+	private final ThreadLocal<CommandLine> commandLines;
+	private final String zoneId = ZoneId.systemDefault().getId();
+	private final String localeTag = Locale.getDefault().toLanguageTag();
+
+	/**
+	 * @param port           loopback port to listen on
+	 * @param threads        number of worker threads, all available processors
+	 *                       if less than 1
+	 * @param commandFactory creates the picocli command that runs the forwarded
+	 *                       arguments
+	 * @throws IOException if the port cannot be bound
+	 */
+	public DaemonServer(int port, int threads, Supplier<CommandLine> commandFactory) throws IOException {
+		this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		this.workers = Executors
+				.newFixedThreadPool(threads < 1 ? Runtime.getRuntime().availableProcessors() : threads);
+		this.commandLines = ThreadLocal.withInitial(commandFactory);
+	}
+
+	/**
+	 * @return the port the daemon listens on
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Load the time zone index and country data, which are otherwise loaded on
+	 * first use, and run a few conversions so that the first client does not pay
+	 * for class loading.
+	 */
+	public void warmUp() {
+		TimeZoneIndex.getInstance(Locale.getDefault());
+		TimeZoneIndex.getInstance(Locale.ENGLISH);
+		ReferenceDataUtil.getCountryIndex();
+		for (String[] command : WARM_UP_COMMANDS) {
+			execute(command);
+		}
+	}
+
+	/**
+	 * Accept connections until the daemon is closed.
+	 */
+	public void serve() throws IOException {
+		LOGGER.fine(() -> "twi daemon listening on " + serverSocket.getLocalSocketAddress());
+		while (!serverSocket.isClosed()) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (SocketException e) {
+				if (serverSocket.isClosed()) {
+					break;
+				}
+				throw e;
+			}
+			workers.execute(() -> handle(socket));
+		}
+	}
+
+	private void handle(Socket socket) {
+		try (Socket connection = socket) {
+			connection.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+			if (in.readInt() != DaemonProtocol.MAGIC || in.readInt() != DaemonProtocol.VERSION) {
+				out.writeInt(DaemonProtocol.STATUS_REFUSED);
+				out.flush();
+				return;
+			}
+			out.writeInt(DaemonProtocol.MAGIC);
+			out.flush();
+			String clientZoneId = in.readUTF();
+			String clientLocaleTag = in.readUTF();
+			String[] args = new String[in.readInt()];
+			for (int i = 0; i < args.length; i++) {
+				args[i] = in.readUTF();
+			}
+
+			// The result depends on the default zone and locale of the process,
+			// so only run commands the client would have run the same way
+			if (!zoneId.equals(clientZoneId) || !localeTag.equals(clientLocaleTag)
+					|| DaemonProtocol.requiresLocalExecution(args)) {
+				out.writeInt(DaemonProtocol.STATUS_REFUSED);
+				out.flush();
+				return;
+			}
+
+			StringWriter stdout = new StringWriter();
+			StringWriter stderr = new StringWriter();
+			int exitCode = execute(args, stdout, stderr);
+			out.writeInt(DaemonProtocol.STATUS_OK);
+			out.writeInt(exitCode);
+			DaemonProtocol.writeText(out, stdout.toString());
+			DaemonProtocol.writeText(out, stderr.toString());
+			out.flush();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Daemon connection failed", e);
+		}
+	}
+
+	private int execute(String[] args) {
+		return execute(args, new StringWriter(), new StringWriter());
+	}
+
+	private int execute(String[] args, StringWriter stdout, StringWriter stderr) {
+		CommandLine commandLine = commandLines.get();
+		commandLine.setOut(new PrintWriter(stdout, true));
+		commandLine.setErr(new PrintWriter(stderr, true));
+		return commandLine.execute(args);
+	}
+
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+		workers.shutdown();
+		try {
+			workers.awaitTermination(SOCKET_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the daemon port from the {@value #PORT_ENVIRONMENT_VARIABLE}
+	 *         environment variable, {@value #DEFAULT_PORT} if it is not set
+	 */
+	public static int getConfiguredPort() {
+		String port = System.getenv(PORT_ENVIRONMENT_VARIABLE);
+		if (port == null || port.trim().isEmpty()) {
+			return DEFAULT_PORT;
+		}
+		try {
+			return Integer.parseInt(port.trim());
+		} catch (NumberFormatException e) {
+			return DEFAULT_PORT;
+		}
+	}
+
+}
@@ -0,0 +1,390 @@
+package com.vigneshbala.twi.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.vigneshbala.twi.metrics.Metrics;
+import com.vigneshbala.twi.metrics.Stage;
+import com.vigneshbala.twi.metrics.StageMetrics;
+import com.vigneshbala.twi.nlp.ParseCache;
+import com.vigneshbala.twi.util.ConversionPlan;
+import com.vigneshbala.twi.util.FormatterCache;
+import com.vigneshbala.twi.util.LatencyHistogram;
+import com.vigneshbala.twi.util.ReferenceDataUtil;
+import com.vigneshbala.twi.util.TimeConversionUtil;
+
+/**
+ * HTTP front end of the conversions, built on the JDK's HTTP server so no
+ * runtime dependency is added. Connections are kept alive between requests.
+ *
+ * POST /convert accepts a single request
+ * {@code {"input": "...", "format": "...", "timezones": [...], "offsets": [...], "countries": [...], "dateTime": "..."}},
+ * a batch sharing the options {@code {"inputs": ["...", ...], "format": ...}}
+ * or a JSON array of single requests. Everything but the input is optional,
+ * dateTime is an ISO zoned date time and defaults to now. The answer is
+ * {@code {"input": "...", "output": "..."}} (or {@code "error"}) per input, a
+ * JSON array for batches.
+ *
+ * GET /metrics reports request counts and latency percentiles, the parse
+ * cache statistics when the server has a {@link ParseCache} and the stage
+ * metrics when {@link Metrics} are enabled.
+ *
+ * Requests are handled on a bounded pool. When all workers are busy and the
+ * queue is full the request is answered with 503 by a single overflow thread,
+ * and if that falls behind as well the connection is closed, so the accepting
+ * thread never handles a request itself. The plan of a request (format, time
+ * zones, offsets, countries) is built once and applied to all of its inputs.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class HttpConversionServer implements Closeable {
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+	// rejected requests waiting to be answered with 503
+	private static final int OVERFLOW_QUEUE_CAPACITY = 64;
+	private static final String RETRY_AFTER_SECONDS = "1";
+
+	private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+	private static final int MAX_REQUEST_BYTES = 1 << 20;
+	private static final int STOP_DELAY_SECONDS = 1;
+
+	private final static Logger LOGGER = Logger.getLogger(HttpConversionServer.class.getName());
+
+	private final HttpServer server;
+	private final ThreadPoolExecutor workers;
+	private final ThreadPoolExecutor overflow;
+	// set while the overflow thread runs a rejected request
+	private final ThreadLocal<Boolean> rejected = ThreadLocal.withInitial(() -> Boolean.FALSE);
+	private final ParseCache parseCache;
+	private final LatencyHistogram convertLatency = new LatencyHistogram();
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder conversions = new LongAdder();
+	private final LongAdder failedConversions = new LongAdder();
+	private final LongAdder badRequests = new LongAdder();
+	private final LongAdder rejectedRequests = new LongAdder();
+
+	/**
+	 * @param address       address and port to listen on
+	 * @param threads       number of worker threads, all available processors if
+	 *                      less than 1
+	 * @param queueCapacity number of requests waiting for a worker, more are
+	 *                      answered with 503
+	 * @throws IOException if the address cannot be bound
+	 */
+	public HttpConversionServer(InetSocketAddress address, int threads, int queueCapacity) throws IOException {
+		this(address, threads, queueCapacity, null);
+	}
+
+	/**
+	 * @param parseCache cache shared by all requests, null to parse every input
+	 * @see #HttpConversionServer(InetSocketAddress, int, int)
+	 */
+	public HttpConversionServer(InetSocketAddress address, int threads, int queueCapacity, ParseCache parseCache)
+			throws IOException {
+		this.parseCache = parseCache;
+		int poolSize = threads < 1 ? Runtime.getRuntime().availableProcessors() : threads;
+		this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(Math.max(1, queueCapacity)));
+		this.overflow = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(OVERFLOW_QUEUE_CAPACITY));
+		this.server = HttpServer.create(address, 0);
+		this.server.setExecutor(this::dispatch);
+		this.server.createContext("/convert", this::handleConvert);
+		this.server.createContext("/metrics", this::handleMetrics);
+	}
+
+	/**
+	 * Load the reference data used by country conversions and start serving.
+	 */
+	public void start() throws Exception {
+		ReferenceDataUtil.loadCountryData();
+		server.start();
+		LOGGER.fine(() -> "twi HTTP service listening on " + server.getAddress());
+	}
+
+	/**
+	 * @return the port the service listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Hand the exchange to a worker, or to the overflow thread to be refused if
+	 * the workers are saturated. If the overflow thread is saturated as well
+	 * the rejection propagates and the server closes the connection.
+	 */
+	private void dispatch(Runnable exchange) {
+		try {
+			workers.execute(exchange);
+		} catch (RejectedExecutionException e) {
+			overflow.execute(() -> {
+				rejected.set(Boolean.TRUE);
+				try {
+					exchange.run();
+				} finally {
+					rejected.set(Boolean.FALSE);
+				}
+			});
+		}
+	}
+
+	private void handleConvert(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		requests.increment();
+		try {
+			if (rejected.get()) {
+				rejectedRequests.increment();
+				exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+				send(exchange, 503, error("busy, retry later"));
+				return;
+			}
+			if (!"POST".equals(exchange.getRequestMethod())) {
+				send(exchange, 405, error("use POST"));
+				return;
+			}
+			Object body;
+			try {
+				body = new JSONTokener(readBody(exchange)).nextValue();
+			} catch (JSONException e) {
+				badRequests.increment();
+				send(exchange, 400, error(e.getMessage()));
+				return;
+			}
+			try {
+				if (body instanceof JSONArray) {
+					send(exchange, 200, convertAll((JSONArray) body));
+				} else if (body instanceof JSONObject && ((JSONObject) body).has("inputs")) {
+					send(exchange, 200, convertBatch((JSONObject) body));
+				} else if (body instanceof JSONObject) {
+					JSONObject result = convert((JSONObject) body);
+					send(exchange, result.has("error") ? 400 : 200, result);
+				} else {
+					badRequests.increment();
+					send(exchange, 400, error("expected a JSON object or array"));
+				}
+			} catch (JSONException | IllegalArgumentException | DateTimeParseException e) {
+				badRequests.increment();
+				send(exchange, 400, error(e.getMessage()));
+			}
+		} finally {
+			convertLatency.record(System.nanoTime() - start);
+			exchange.close();
+		}
+	}
+
+	private JSONArray convertAll(JSONArray batch) {
+		JSONArray results = new JSONArray();
+		for (int i = 0; i < batch.length(); i++) {
+			results.put(convert(batch.getJSONObject(i)));
+		}
+		return results;
+	}
+
+	/**
+	 * Convert the inputs of a batch with one plan. A bad format, offset or base
+	 * time fails the whole batch instead of failing every input.
+	 */
+	private JSONArray convertBatch(JSONObject request) {
+		JSONArray inputs = request.getJSONArray("inputs");
+		ConversionPlan plan = toPlan(request);
+		ZonedDateTime dateTime = toBaseTime(request);
+		JSONArray results = new JSONArray();
+		for (int i = 0; i < inputs.length(); i++) {
+			results.put(convert(plan, dateTime, inputs.getString(i)));
+		}
+		return results;
+	}
+
+	/**
+	 * Convert a single request, a bad format, offset or base time is reported as
+	 * the error of its input.
+	 */
+	private JSONObject convert(JSONObject request) {
+		String input = request.optString("input", null);
+		ConversionPlan plan;
+		ZonedDateTime dateTime;
+		try {
+			plan = toPlan(request);
+			dateTime = toBaseTime(request);
+		} catch (JSONException | IllegalArgumentException | DateTimeParseException e) {
+			conversions.increment();
+			return failed(input, e);
+		}
+		return convert(plan, dateTime, input);
+	}
+
+	private JSONObject convert(ConversionPlan plan, ZonedDateTime dateTime, String input) {
+		conversions.increment();
+		try {
+			if (input == null || input.trim().isEmpty()) {
+				throw new Exception("input is required");
+			}
+			JSONObject result = new JSONObject();
+			result.put("input", input);
+			result.put("output", plan.convert(input, dateTime, parseCache));
+			return result;
+		} catch (Exception e) {
+			return failed(input, e);
+		}
+	}
+
+	private JSONObject failed(String input, Exception e) {
+		failedConversions.increment();
+		JSONObject result = new JSONObject();
+		result.put("input", input == null ? JSONObject.NULL : input);
+		result.put("error", String.valueOf(e.getMessage()));
+		return result;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the format or an offset is invalid
+	 */
+	private static ConversionPlan toPlan(JSONObject request) {
+		return ConversionPlan.of(request.optString("format", TimeConversionUtil.DEFAULT_FORMAT),
+				toArray(request.optJSONArray("timezones")), toArray(request.optJSONArray("countries")),
+				toArray(request.optJSONArray("offsets")));
+	}
+
+	private static ZonedDateTime toBaseTime(JSONObject request) {
+		return request.has("dateTime") ? ZonedDateTime.parse(request.getString("dateTime")) : ZonedDateTime.now();
+	}
+
+	private static String[] toArray(JSONArray values) {
+		if (values == null) {
+			return null;
+		}
+		List<String> strings = new ArrayList<>(values.length());
+		for (int i = 0; i < values.length(); i++) {
+			strings.add(values.getString(i));
+		}
+		return strings.toArray(new String[strings.size()]);
+	}
+
+	private void handleMetrics(HttpExchange exchange) throws IOException {
+		try {
+			JSONObject latency = new JSONObject();
+			latency.put("count", convertLatency.getCount());
+			latency.put("meanMicros", convertLatency.getMeanNanos() / 1000);
+			latency.put("p50Micros", convertLatency.getPercentileNanos(50) / 1000.0);
+			latency.put("p90Micros", convertLatency.getPercentileNanos(90) / 1000.0);
+			latency.put("p99Micros", convertLatency.getPercentileNanos(99) / 1000.0);
+			latency.put("maxMicros", convertLatency.getMaxNanos() / 1000.0);
+
+			JSONObject metrics = new JSONObject();
+			metrics.put("requests", requests.sum());
+			metrics.put("badRequests", badRequests.sum());
+			metrics.put("rejectedRequests", rejectedRequests.sum());
+			metrics.put("conversions", conversions.sum());
+			metrics.put("failedConversions", failedConversions.sum());
+			metrics.put("activeWorkers", workers.getActiveCount());
+			metrics.put("queuedRequests", workers.getQueue().size());
+			metrics.put("convertLatency", latency);
+			metrics.put("formatterCacheHits", FormatterCache.getHits());
+			metrics.put("formatterCacheMisses", FormatterCache.getMisses());
+			if (parseCache != null) {
+				JSONObject cache = new JSONObject();
+				cache.put("size", parseCache.size());
+				cache.put("hits", parseCache.getHits());
+				cache.put("misses", parseCache.getMisses());
+				cache.put("hitRate", parseCache.getHitRate());
+				cache.put("evictions", parseCache.getEvictions());
+				cache.put("expirations", parseCache.getExpirations());
+				cache.put("loadMicros", parseCache.getLoadNanos() / 1000.0);
+				metrics.put("parseCache", cache);
+			}
+			if (Metrics.ENABLED) {
+				metrics.put("stages", stageMetrics());
+			}
+			send(exchange, 200, metrics);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static JSONObject stageMetrics() {
+		JSONObject stages = new JSONObject();
+		for (Stage stage : Stage.values()) {
+			StageMetrics stageMetrics = Metrics.get(stage);
+			if (stageMetrics.getCount() == 0 && stageMetrics.getErrorCount() == 0) {
+				continue;
+			}
+			JSONObject json = new JSONObject();
+			json.put("count", stageMetrics.getCount());
+			json.put("errors", stageMetrics.getErrorCount());
+			json.put("errorsByMessage", stageMetrics.getErrorsByMessage());
+			json.put("meanMicros", stageMetrics.getMeanMicros());
+			json.put("p50Micros", stageMetrics.getP50Micros());
+			json.put("p90Micros", stageMetrics.getP90Micros());
+			json.put("p99Micros", stageMetrics.getP99Micros());
+			json.put("maxMicros", stageMetrics.getMaxMicros());
+			stages.put(stage.name(), json);
+		}
+		return stages;
+	}
+
+	private static String readBody(HttpExchange exchange) throws IOException {
+		try (InputStream body = exchange.getRequestBody()) {
+			byte[] buffer = new byte[8192];
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			int read;
+			while ((read = body.read(buffer)) != -1) {
+				if (bytes.size() + read > MAX_REQUEST_BYTES) {
+					throw new JSONException("request larger than " + MAX_REQUEST_BYTES + " bytes");
+				}
+				bytes.write(buffer, 0, read);
+			}
+			return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static JSONObject error(String message) {
+		return new JSONObject().put("error", String.valueOf(message));
+	}
+
+	private static void send(HttpExchange exchange, int status, Object json) throws IOException {
+		byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+		// a fixed length keeps the connection reusable for the next request
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Client went away", e);
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(STOP_DELAY_SECONDS);
+		workers.shutdown();
+		overflow.shutdown();
+	}
+
+}
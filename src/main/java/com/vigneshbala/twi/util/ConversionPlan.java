@@ -0,0 +1,423 @@
+package com.vigneshbala.twi.util;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+import com.vigneshbala.twi.metrics.Metrics;
+import com.vigneshbala.twi.metrics.Stage;
+import com.vigneshbala.twi.model.Conversion;
+import com.vigneshbala.twi.model.ConvertedDateTime;
+import com.vigneshbala.twi.model.ConvertedDateTime.Target;
+import com.vigneshbala.twi.model.CountryRecord;
+import com.vigneshbala.twi.model.ParserResult;
+import com.vigneshbala.twi.nlp.DateTimeNLPParser;
+import com.vigneshbala.twi.nlp.ParseCache;
+
+/**
+ * The targets of a conversion resolved once: the formatter, the zones of the
+ * time zone, offset and country arguments and the labels printed in front of
+ * each converted date time. A plan is immutable and can be applied to any
+ * number of date times, from any number of threads.
+ *
+ * The output is the same as
+ * {@link TimeConversionUtil#convertDateTime(String, String, ZonedDateTime, String[], String[], String[])}.
+ * An invalid format or offset fails when the plan is built, so a batch reports
+ * it once instead of for every input.
+ *
+ * Time zone and offset lines are printed in argument order, comma separated,
+ * so the same arguments always give the same output. The offsets of the
+ * target zones are looked up in their {@link ZoneTransitions} and the date
+ * time is formatted in every zone without creating a ZonedDateTime per target.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public final class ConversionPlan {
+
+	private static final String COLON = ":";
+	private static final String SEPARATOR = ",";
+	private static final String NEW_LINE = "\n";
+
+	private final static Logger LOGGER = Logger.getLogger(ConversionPlan.class.getName());
+
+	private static final DateTimeNLPParser PARSER = new DateTimeNLPParser();
+
+	private final String format;
+	private final DateTimeFormatter formatter;
+
+	private final boolean distinct;
+
+	private final String[] timeZones;
+	private final String[] zoneLabels;
+	private final ZoneId[] zones;
+	// index of the time zone argument every zone was found for
+	private final int[] zoneGroups;
+	private final ZoneTransitions[] zoneTransitions;
+
+	private final String[] offsets;
+	private final String[] offsetLabels;
+	private final ZoneId[] offsetZones;
+	private final ZoneTransitions[] offsetTransitions;
+
+	private final String[] countryCodes;
+	private final String[] countryHeaders;
+	private final String[][] countryZoneLabels;
+	private final ZoneId[][] countryZones;
+	private final ZoneTransitions[][] countryTransitions;
+
+	private ConversionPlan(String format, String[] timeZones, String[] countries, String[] offsets,
+			boolean distinct) {
+		this.format = format;
+		this.distinct = distinct;
+		this.formatter = FormatterCache.get(format);
+
+		if (timeZones != null) {
+			this.timeZones = timeZones.clone();
+			List<String> labels = new ArrayList<>();
+			List<ZoneId> resolved = new ArrayList<>();
+			List<Integer> groups = new ArrayList<>();
+			for (int i = 0; i < timeZones.length; i++) {
+				String timeZone = timeZones[i];
+				LOGGER.fine(() -> "Time Zone Processing::" + timeZone);
+				String label = timeZones[i] + " " + COLON + " ";
+				for (ZoneId zone : TimeZoneIndex.resolve(Locale.getDefault(), timeZones[i])) {
+					labels.add(label);
+					resolved.add(zone);
+					groups.add(i);
+				}
+			}
+			this.zoneLabels = labels.toArray(new String[labels.size()]);
+			this.zones = resolved.toArray(new ZoneId[resolved.size()]);
+			this.zoneGroups = new int[groups.size()];
+			for (int i = 0; i < zoneGroups.length; i++) {
+				zoneGroups[i] = groups.get(i);
+			}
+			this.zoneTransitions = transitionsOf(zones);
+		} else {
+			this.timeZones = null;
+			this.zoneLabels = null;
+			this.zones = null;
+			this.zoneGroups = null;
+			this.zoneTransitions = null;
+		}
+
+		if (offsets != null) {
+			this.offsets = offsets.clone();
+			this.offsetLabels = new String[offsets.length];
+			for (int i = 0; i < offsets.length; i++) {
+				offsetLabels[i] = offsets[i] + " " + COLON;
+			}
+			this.offsetZones = resolveOffsets(this.offsets);
+			this.offsetTransitions = transitionsOf(offsetZones);
+		} else {
+			this.offsets = null;
+			this.offsetLabels = null;
+			this.offsetZones = null;
+			this.offsetTransitions = null;
+		}
+
+		if (countries != null) {
+			List<CountryRecord> records = new ArrayList<>();
+			CountryIndex index = ReferenceDataUtil.getCountryIndex();
+			for (String country : countries) {
+				CountryRecord countryRecord = index.find(country.toLowerCase());
+				if (countryRecord != null) {
+					records.add(countryRecord);
+				}
+			}
+			this.countryCodes = new String[records.size()];
+			this.countryHeaders = new String[records.size()];
+			this.countryZoneLabels = new String[records.size()][];
+			this.countryZones = new ZoneId[records.size()][];
+			this.countryTransitions = new ZoneTransitions[records.size()][];
+			for (int i = 0; i < records.size(); i++) {
+				CountryRecord countryRecord = records.get(i);
+				List<ZoneId> countryTimeZones = countryRecord.getTimeZones();
+				countryCodes[i] = countryRecord.getAlpha2Code();
+				countryHeaders[i] = countryCodes[i] + COLON + NEW_LINE;
+				countryZoneLabels[i] = new String[countryTimeZones.size()];
+				countryZones[i] = countryTimeZones.toArray(new ZoneId[countryTimeZones.size()]);
+				countryTransitions[i] = transitionsOf(countryZones[i]);
+				for (int z = 0; z < countryZones[i].length; z++) {
+					countryZoneLabels[i][z] = countryZones[i][z] + COLON;
+				}
+			}
+		} else {
+			this.countryCodes = null;
+			this.countryHeaders = null;
+			this.countryZoneLabels = null;
+			this.countryZones = null;
+			this.countryTransitions = null;
+		}
+	}
+
+	/**
+	 * @param format    date or time format
+	 * @param timeZones time zone short codes, names or ids, null for none
+	 * @param countries country codes or names, null for none
+	 * @param offsets   offsets from UTC, null for none
+	 * @return the resolved plan
+	 * @throws IllegalArgumentException if the format or an offset is invalid
+	 */
+	public static ConversionPlan of(String format, String[] timeZones, String[] countries, String[] offsets) {
+		return new ConversionPlan(format, timeZones, countries, offsets, false);
+	}
+
+	/**
+	 * @param distinct print a time zone or offset line only once even if several
+	 *                 arguments produce it
+	 * @see #of(String, String[], String[], String[])
+	 */
+	public static ConversionPlan of(String format, String[] timeZones, String[] countries, String[] offsets,
+			boolean distinct) {
+		return new ConversionPlan(format, timeZones, countries, offsets, distinct);
+	}
+
+	private static ZoneTransitions[] transitionsOf(ZoneId[] zones) {
+		ZoneTransitions[] transitions = new ZoneTransitions[zones.length];
+		for (int i = 0; i < zones.length; i++) {
+			transitions[i] = ZoneTransitions.of(zones[i]);
+		}
+		return transitions;
+	}
+
+	private static ZoneId[] resolveOffsets(String[] offsets) {
+		try {
+			return TimeConversionUtil.resolveOffsets(offsets);
+		} catch (Exception e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * Parse the input and convert it.
+	 *
+	 * @param input    Date time in natural language
+	 * @param dateTime Base Date Time
+	 * @return converted date time
+	 * @throws Exception if the input cannot be parsed
+	 */
+	public String convert(String input, ZonedDateTime dateTime) throws Exception {
+		return apply(parse(input, dateTime));
+	}
+
+	/**
+	 * Parse the input only, for callers that render the result themselves with
+	 * {@link #appendTo(ZonedDateTime, StringBuilder)}.
+	 *
+	 * @param input    Date time in natural language
+	 * @param dateTime Base Date Time
+	 * @return the date time the input stands for
+	 * @throws Exception if the input cannot be parsed
+	 */
+	public ZonedDateTime parse(String input, ZonedDateTime dateTime) throws Exception {
+		return PARSER.parse(input, dateTime, format).getToDateTime();
+	}
+
+	/**
+	 * Parse the input and convert it to typed records, nothing is formatted
+	 * until {@link Conversion#getText()} is called.
+	 *
+	 * @param input    Date time in natural language
+	 * @param dateTime Base Date Time
+	 * @return the parsed input and the converted date time of every target
+	 * @throws Exception if the input cannot be parsed
+	 */
+	public Conversion resolve(String input, ZonedDateTime dateTime) throws Exception {
+		return resolve(PARSER.parse(input, dateTime, format));
+	}
+
+	/**
+	 * Convert a parsed input to typed records. The offsets of the plan are
+	 * recorded in the parser result.
+	 *
+	 * @see #resolve(String, ZonedDateTime)
+	 */
+	public Conversion resolve(ParserResult parserResult) throws Exception {
+		long start = Metrics.start();
+		try {
+			Conversion conversion = toConversion(parserResult);
+			Metrics.record(Stage.CONVERT_RECORDS, start);
+			return conversion;
+		} catch (Exception e) {
+			Metrics.fail(Stage.CONVERT_RECORDS, e);
+			throw e;
+		}
+	}
+
+	private Conversion toConversion(ParserResult parserResult) throws Exception {
+		ZonedDateTime dateTime = parserResult.getToDateTime();
+		List<ConvertedDateTime> dateTimes = new ArrayList<>();
+		if (zones != null) {
+			for (int i = 0; i < zones.length; i++) {
+				dateTimes.add(new ConvertedDateTime(Target.TIME_ZONE, timeZones[zoneGroups[i]], zones[i],
+						dateTime.withZoneSameInstant(zones[i])));
+			}
+		}
+		if (offsets != null) {
+			for (int i = 0; i < offsetZones.length; i++) {
+				dateTimes.add(new ConvertedDateTime(Target.OFFSET, offsets[i], offsetZones[i],
+						dateTime.withZoneSameInstant(offsetZones[i])));
+			}
+			parserResult.setOffsets(Collections.unmodifiableList(Arrays.asList(offsets)));
+		}
+		if (countryHeaders != null) {
+			for (int i = 0; i < countryCodes.length; i++) {
+				for (ZoneId zone : countryZones[i]) {
+					dateTimes.add(new ConvertedDateTime(Target.COUNTRY, countryCodes[i], zone,
+							dateTime.withZoneSameInstant(zone)));
+				}
+			}
+		}
+		return new Conversion(parserResult, dateTimes, () -> apply(dateTime));
+	}
+
+	/**
+	 * Parse the input through the cache and convert it.
+	 *
+	 * @param cache parse cache, null to always parse
+	 * @see #convert(String, ZonedDateTime)
+	 */
+	public String convert(String input, ZonedDateTime dateTime, ParseCache cache) throws Exception {
+		if (cache == null) {
+			return convert(input, dateTime);
+		}
+		return apply(cache.parse(input, dateTime, format).getToDateTime());
+	}
+
+	/**
+	 * Convert a date time to every target of the plan, or just format it if the
+	 * plan has no targets.
+	 *
+	 * @param dateTime date time to convert
+	 * @return converted date time
+	 * @throws Exception if the date time cannot be formatted
+	 */
+	public String apply(ZonedDateTime dateTime) throws Exception {
+		if (zones == null && offsets == null && countryHeaders == null) {
+			return formatter.format(dateTime);
+		}
+		StringBuilder sb = new StringBuilder();
+		appendTo(dateTime, sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Same as {@link #apply(ZonedDateTime)}, formatting straight into the
+	 * caller's buffer.
+	 *
+	 * @param dateTime date time to convert
+	 * @param sb       buffer the converted date time is appended to
+	 * @throws Exception if the date time cannot be formatted, the buffer may then
+	 *                   hold part of the output
+	 */
+	public void appendTo(ZonedDateTime dateTime, StringBuilder sb) throws Exception {
+		Stage stage = Stage.FORMAT;
+		long start = Metrics.start();
+		try {
+			if (zones == null && offsets == null && countryHeaders == null) {
+				formatter.formatTo(dateTime, sb);
+				Metrics.record(stage, start);
+				return;
+			}
+			// the same instant is formatted in every target zone
+			ZonedFields fields = new ZonedFields();
+			if (zones != null) {
+				stage = Stage.CONVERT_TIME_ZONES;
+				appendLines(sb, zoneLabels, zoneTransitions, zoneGroups, dateTime, fields);
+				start = Metrics.record(stage, start);
+			}
+			if (offsets != null) {
+				stage = Stage.CONVERT_OFFSETS;
+				appendLines(sb, offsetLabels, offsetTransitions, null, dateTime, fields);
+				start = Metrics.record(stage, start);
+			}
+			if (countryHeaders != null) {
+				stage = Stage.CONVERT_COUNTRIES;
+				for (int i = 0; i < countryHeaders.length; i++) {
+					sb.append(countryHeaders[i]);
+					for (int z = 0; z < countryZones[i].length; z++) {
+						sb.append(countryZoneLabels[i][z]);
+						formatter.formatTo(
+								fields.set(countryTransitions[i][z], dateTime.toEpochSecond(), dateTime.getNano()), sb);
+						sb.append(NEW_LINE);
+					}
+				}
+				Metrics.record(stage, start);
+			}
+		} catch (Exception e) {
+			Metrics.fail(stage, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Append "label converted" for every target in argument order, separated by
+	 * commas. A line identical to an earlier line of the same argument (e.g. two
+	 * zones of one abbreviation with the same offset) is dropped, with
+	 * {@link #distinct} also one identical to any earlier line.
+	 *
+	 * @param groups argument index of every target, null if every target is its
+	 *               own argument
+	 * @param fields reused to hold the date time in every target zone
+	 */
+	private void appendLines(StringBuilder sb, String[] labels, ZoneTransitions[] targets, int[] groups,
+			ZonedDateTime dateTime, ZonedFields fields) {
+		long epochSecond = dateTime.toEpochSecond();
+		int nano = dateTime.getNano();
+		// start and end of every line kept so far
+		int[] bounds = new int[targets.length * 2];
+		int lines = 0;
+		int groupStart = 0;
+		for (int i = 0; i < targets.length; i++) {
+			if (groups == null || (i > 0 && groups[i] != groups[i - 1])) {
+				groupStart = lines;
+			}
+			int start = sb.length();
+			if (lines > 0) {
+				sb.append(SEPARATOR);
+			}
+			int lineStart = sb.length();
+			sb.append(labels[i]);
+			formatter.formatTo(fields.set(targets[i], epochSecond, nano), sb);
+			if (isRepeated(sb, lineStart, bounds, distinct ? 0 : groupStart, lines)) {
+				sb.setLength(start);
+			} else {
+				bounds[lines * 2] = lineStart;
+				bounds[lines * 2 + 1] = sb.length();
+				lines++;
+			}
+		}
+	}
+
+	private static boolean isRepeated(StringBuilder sb, int lineStart, int[] bounds, int from, int to) {
+		int length = sb.length() - lineStart;
+		for (int line = from; line < to; line++) {
+			int start = bounds[line * 2];
+			if (bounds[line * 2 + 1] - start != length) {
+				continue;
+			}
+			int i = 0;
+			while (i < length && sb.charAt(start + i) == sb.charAt(lineStart + i)) {
+				i++;
+			}
+			if (i == length) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
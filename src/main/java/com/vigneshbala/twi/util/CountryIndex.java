@@ -0,0 +1,151 @@
+package com.vigneshbala.twi.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.vigneshbala.twi.model.CountryRecord;
+
+/**
+ * Immutable lookup of countries by alias: alpha2 code, alpha3 code and lower
+ * cased name. Built once when the reference data is loaded.
+ *
+ * Besides the exact alias map, every alias is also split into words (the same
+ * way the date time tokenizer splits input, e.g. "u.s. virgin islands" becomes
+ * u, s, virgin, islands) and filed under its first word, so a multi word name
+ * in a token stream is found with one lookup on the first token followed by a
+ * comparison of the next few tokens.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class CountryIndex {
+
+	/**
+	 * An alias split into words, with the country it stands for.
+	 */
+	public static class Phrase {
+		private final String[] words;
+		private final CountryRecord country;
+
+		Phrase(String[] words, CountryRecord country) {
+			this.words = words;
+			this.country = country;
+		}
+
+		public int length() {
+			return words.length;
+		}
+
+		public String getWord(int index) {
+			return words[index];
+		}
+
+		public CountryRecord getCountry() {
+			return country;
+		}
+	}
+
+	private final Map<String, CountryRecord> countriesByAlias;
+	private final Map<String, List<Phrase>> phrasesByFirstWord;
+
+	CountryIndex(Collection<CountryRecord> countries) {
+		Map<String, CountryRecord> aliases = new HashMap<>();
+		Map<String, List<Phrase>> phrases = new HashMap<>();
+		for (CountryRecord country : countries) {
+			for (String alias : new String[] { country.getAlpha2Code(), country.getAlpha3Code(),
+					country.getCountryName() }) {
+				if (alias == null) {
+					continue;
+				}
+				String[] words = splitWords(StringUtils.stripAccents(alias));
+				if (words.length == 0) {
+					continue;
+				}
+				aliases.putIfAbsent(alias, country);
+				aliases.putIfAbsent(alias.trim(), country);
+				aliases.putIfAbsent(StringUtils.join(words, ' '), country);
+				register(phrases, new Phrase(words, country));
+			}
+		}
+		for (Entry<String, List<Phrase>> entry : phrases.entrySet()) {
+			// longest phrase first, so "united states minor outlying islands" wins
+			// over "united states"
+			entry.getValue().sort((left, right) -> right.length() - left.length());
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		this.countriesByAlias = Collections.unmodifiableMap(aliases);
+		this.phrasesByFirstWord = Collections.unmodifiableMap(phrases);
+	}
+
+	private static void register(Map<String, List<Phrase>> phrases, Phrase phrase) {
+		List<Phrase> candidates = phrases.get(phrase.getWord(0));
+		if (candidates == null) {
+			candidates = new ArrayList<>(1);
+			phrases.put(phrase.getWord(0), candidates);
+		}
+		for (Phrase candidate : candidates) {
+			if (candidate.getCountry() == phrase.getCountry() && Arrays.equals(candidate.words, phrase.words)) {
+				return;
+			}
+		}
+		candidates.add(phrase);
+	}
+
+	/**
+	 * @param alias lower cased alpha2 code, alpha3 code or name (words separated
+	 *              by single spaces or as written in the reference data)
+	 * @return the country, null if the alias is unknown
+	 */
+	public CountryRecord find(String alias) {
+		return countriesByAlias.get(alias);
+	}
+
+	/**
+	 * @param firstWord lower cased word
+	 * @return aliases starting with the word, longest first, empty if none
+	 */
+	public List<Phrase> findPhrases(String firstWord) {
+		List<Phrase> phrases = phrasesByFirstWord.get(firstWord);
+		return phrases == null ? Collections.<Phrase>emptyList() : phrases;
+	}
+
+	/**
+	 * Words are runs of letters, a hyphen, slash or underscore followed by a
+	 * letter keeps the word going. Anything else separates words.
+	 */
+	static String[] splitWords(String text) {
+		List<String> words = new ArrayList<>();
+		int length = text.length();
+		int index = 0;
+		while (index < length) {
+			if (!Character.isLetter(text.charAt(index))) {
+				index++;
+				continue;
+			}
+			int start = index;
+			while (index < length) {
+				char c = text.charAt(index);
+				if (Character.isLetter(c)) {
+					index++;
+				} else if ((c == '-' || c == '/' || c == '_') && index + 1 < length
+						&& Character.isLetter(text.charAt(index + 1))) {
+					index++;
+				} else {
+					break;
+				}
+			}
+			words.add(text.substring(start, index));
+		}
+		return words.toArray(new String[words.size()]);
+	}
+
+}
@@ -0,0 +1,244 @@
+package com.vigneshbala.twi.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+import com.vigneshbala.twi.model.BatchStatistics;
+import com.vigneshbala.twi.model.ConversionResult;
+import com.vigneshbala.twi.model.DateTimeSpan;
+import com.vigneshbala.twi.nlp.DateTimeExtractor;
+import com.vigneshbala.twi.nlp.DateTimeNLPParser;
+
+/**
+ * Finds every date time mentioned in a (UTF-8) file of any size, e.g. a log or
+ * a mail dump, and converts each one. The file is memory mapped a window at a
+ * time and cut into chunks at line breaks; the chunks are decoded and run
+ * through the {@link DateTimeExtractor} on all cores, and the results are
+ * handed to the consumer in file order.
+ *
+ * The file is never read onto the heap and only a bounded number of chunks is
+ * in flight at any time, so memory stays flat regardless of the file size. A
+ * line longer than a chunk is cut inside the line (at a character boundary),
+ * which may split a mention. The consumer is always called from the thread
+ * that calls {@link #scan}, it does not need to be thread safe.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DocumentScanner implements AutoCloseable {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	// at most this much of the file is mapped at a time
+	private static final long DEFAULT_MAPPING_SIZE = 256L * 1024 * 1024;
+	private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 4;
+	private static final byte LINE_FEED = '\n';
+
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+	private final long mappingSize;
+
+	/**
+	 * @param parallelism number of worker threads, all available processors if
+	 *                    less than 1
+	 * @param chunkSize   number of bytes scanned by a task, up to the last line
+	 *                    break
+	 */
+	public DocumentScanner(int parallelism, int chunkSize) {
+		this(parallelism, chunkSize, DEFAULT_MAPPING_SIZE);
+	}
+
+	DocumentScanner(int parallelism, int chunkSize, long mappingSize) {
+		this.pool = new ForkJoinPool(parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism);
+		this.chunkSize = chunkSize < 1 ? DEFAULT_CHUNK_SIZE : chunkSize;
+		this.mappingSize = Math.max(mappingSize, this.chunkSize);
+	}
+
+	/**
+	 * Scan the file and convert every date time it mentions. The results carry
+	 * the line the mention is on and the mention as written.
+	 *
+	 * @param file     UTF-8 text, malformed bytes are read as replacement
+	 *                 characters
+	 * @param plan     targets of the conversion
+	 * @param dateTime Base Date Time, current time if null
+	 * @param consumer receives one result per mention
+	 * @return number of lines scanned and of mentions that failed to convert
+	 * @throws IOException          if the file cannot be read
+	 * @throws InterruptedException if interrupted while waiting for a chunk
+	 */
+	public BatchStatistics scan(Path file, ConversionPlan plan, ZonedDateTime dateTime,
+			Consumer<ConversionResult> consumer) throws IOException, InterruptedException {
+		final ZonedDateTime baseTime = dateTime == null ? ZonedDateTime.now() : dateTime;
+		DateTimeExtractor extractor = new DateTimeExtractor(new DateTimeNLPParser(), plan.getFormat());
+		long start = System.nanoTime();
+		int maxInFlight = pool.getParallelism() * CHUNKS_IN_FLIGHT_PER_THREAD;
+		ArrayDeque<ForkJoinTask<Chunk>> pending = new ArrayDeque<>();
+		// lines before the next chunk to emit, and failures
+		long[] counts = new long[2];
+		boolean endsWithLineBreak = true;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				int length = (int) Math.min(mappingSize, size - position);
+				boolean last = position + length == size;
+				MappedByteBuffer mapping = channel.map(MapMode.READ_ONLY, position, length);
+				int offset = 0;
+				int end;
+				while (offset < length && (end = chunkEnd(mapping, offset, length, last)) > offset) {
+					ByteBuffer bytes = mapping.duplicate();
+					bytes.limit(end).position(offset);
+					ChunkTask task = new ChunkTask(bytes.slice(), extractor, plan, baseTime);
+					pending.add(pool.submit(task));
+					if (pending.size() >= maxInFlight) {
+						emit(pending.poll().join(), consumer, counts);
+					}
+					offset = end;
+				}
+				if (last) {
+					endsWithLineBreak = mapping.get(length - 1) == LINE_FEED;
+				}
+				position += offset;
+			}
+		}
+		while (!pending.isEmpty()) {
+			emit(pending.poll().join(), consumer, counts);
+		}
+		long lines = counts[0] + (endsWithLineBreak ? 0 : 1);
+		return new BatchStatistics(lines, counts[1], System.nanoTime() - start, pool.getParallelism());
+	}
+
+	/**
+	 * End of the chunk starting at the offset: after the last line break within
+	 * the chunk size. A line longer than the chunk is cut at the chunk size, one
+	 * that runs past the end of the mapping is left for the next mapping.
+	 *
+	 * @return end of the chunk, the offset itself if the rest of the mapping has
+	 *         to be mapped again
+	 */
+	private int chunkEnd(ByteBuffer mapping, int offset, int length, boolean last) {
+		int end = (int) Math.min((long) offset + chunkSize, length);
+		if (end == length && last) {
+			return end;
+		}
+		for (int i = end - 1; i >= offset; i--) {
+			if (mapping.get(i) == LINE_FEED) {
+				return i + 1;
+			}
+		}
+		if (end == length && offset > 0) {
+			return offset;
+		}
+		return characterBoundary(mapping, offset, end);
+	}
+
+	/**
+	 * @return the end, or the start of the last character before it if that
+	 *         character is cut by the end
+	 */
+	private static int characterBoundary(ByteBuffer mapping, int offset, int end) {
+		int lead = end - 1;
+		while (lead > offset && lead > end - 4 && (mapping.get(lead) & 0xC0) == 0x80) {
+			lead--;
+		}
+		int first = mapping.get(lead) & 0xFF;
+		int length = first < 0x80 ? 1 : first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : 2;
+		return lead + length <= end || lead == offset ? end : lead;
+	}
+
+	private static void emit(Chunk chunk, Consumer<ConversionResult> consumer, long[] counts) {
+		for (ConversionResult result : chunk.results) {
+			// line numbers of the chunk count from 0
+			long lineNumber = counts[0] + result.getLineNumber() + 1;
+			if (result.isSuccess()) {
+				consumer.accept(new ConversionResult(lineNumber, result.getInput(), result.getOutput()));
+			} else {
+				counts[1]++;
+				consumer.accept(new ConversionResult(lineNumber, result.getInput(), result.getError()));
+			}
+		}
+		counts[0] += chunk.lineBreaks;
+	}
+
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Results of a chunk, numbered by the line of the chunk (from 0) the mention
+	 * is on.
+	 */
+	private static class Chunk {
+		private final List<ConversionResult> results;
+		private final int lineBreaks;
+
+		Chunk(List<ConversionResult> results, int lineBreaks) {
+			this.results = results;
+			this.lineBreaks = lineBreaks;
+		}
+	}
+
+	/**
+	 * Decodes and scans one chunk. The extractor and the plan keep no state
+	 * between calls, the workers share the ones of the scan.
+	 */
+	private static class ChunkTask implements Callable<Chunk> {
+		private final ByteBuffer bytes;
+		private final DateTimeExtractor extractor;
+		private final ConversionPlan plan;
+		private final ZonedDateTime dateTime;
+
+		ChunkTask(ByteBuffer bytes, DateTimeExtractor extractor, ConversionPlan plan, ZonedDateTime dateTime) {
+			this.bytes = bytes;
+			this.extractor = extractor;
+			this.plan = plan;
+			this.dateTime = dateTime;
+		}
+
+		@Override
+		public Chunk call() {
+			String text = StandardCharsets.UTF_8.decode(bytes).toString();
+			List<DateTimeSpan> spans = extractor.extract(text, dateTime);
+			List<ConversionResult> results = new ArrayList<>(spans.size());
+			int lineBreaks = 0;
+			int index = 0;
+			for (DateTimeSpan span : spans) {
+				for (; index < span.getStart(); index++) {
+					if (text.charAt(index) == LINE_FEED) {
+						lineBreaks++;
+					}
+				}
+				try {
+					results.add(new ConversionResult(lineBreaks, span.getText(), plan.apply(span.getDateTime())));
+				} catch (Exception e) {
+					results.add(new ConversionResult(lineBreaks, span.getText(), e));
+				}
+			}
+			for (; index < text.length(); index++) {
+				if (text.charAt(index) == LINE_FEED) {
+					lineBreaks++;
+				}
+			}
+			return new Chunk(results, lineBreaks);
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.vigneshbala.twi.util;
+
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared cache of {@link DateTimeFormatter} by pattern string. Parsing a
+ * pattern is expensive compared to formatting with it, and the callers only
+ * ever use a handful of patterns, so every output path goes through this cache.
+ * 
+ * The cache is bounded, once {@link #MAX_SIZE} patterns are cached further
+ * patterns are still returned but not kept. Invalid patterns are never cached,
+ * so they fail on every call with the {@link IllegalArgumentException} from
+ * {@link DateTimeFormatter#ofPattern(String)}.
+ * 
+ * (c) 2024 Vignesh Balasubramanian
+ * 
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class FormatterCache {
+
+	public static final int MAX_SIZE = 128;
+
+	private static final ConcurrentMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+
+	private FormatterCache() {
+	}
+
+	/**
+	 * @param pattern date time pattern, e.g. dd-MM-yyyy
+	 * @return formatter for the pattern
+	 * @throws IllegalArgumentException if the pattern is invalid
+	 */
+	public static DateTimeFormatter get(String pattern) {
+		DateTimeFormatter formatter = FORMATTERS.get(pattern);
+		if (formatter != null) {
+			HITS.increment();
+			return formatter;
+		}
+		MISSES.increment();
+		formatter = DateTimeFormatter.ofPattern(pattern);
+		if (FORMATTERS.size() < MAX_SIZE) {
+			DateTimeFormatter existing = FORMATTERS.putIfAbsent(pattern, formatter);
+			if (existing != null) {
+				formatter = existing;
+			}
+		}
+		return formatter;
+	}
+
+	/**
+	 * Check a pattern up front, e.g. before starting a batch.
+	 * 
+	 * @param pattern date time pattern
+	 * @throws IllegalArgumentException if the pattern is invalid
+	 */
+	public static void validate(String pattern) {
+		get(pattern);
+	}
+
+	public static long getHits() {
+		return HITS.sum();
+	}
+
+	public static long getMisses() {
+		return MISSES.sum();
+	}
+
+	public static int size() {
+		return FORMATTERS.size();
+	}
+
+	public static String getStatistics() {
+		return "formatter cache: " + size() + " patterns, " + getHits() + " hits, " + getMisses() + " misses";
+	}
+
+}
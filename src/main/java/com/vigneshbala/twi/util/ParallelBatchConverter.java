@@ -0,0 +1,201 @@
+package com.vigneshbala.twi.util;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.vigneshbala.twi.model.BatchStatistics;
+import com.vigneshbala.twi.model.ConversionResult;
+
+/**
+ * Converts a batch of inputs on all cores. The input is read in chunks of
+ * lines, each chunk is converted by a fork/join task that splits it further
+ * between idle workers, and the results are handed to the consumer either in
+ * input order or as soon as a chunk completes.
+ * 
+ * Only a bounded number of chunks is in flight at any time, so memory stays
+ * flat regardless of the batch size. The consumer is always called from the
+ * thread that calls {@link #convert}, it does not need to be thread safe.
+ * 
+ * (c) 2024 Vignesh Balasubramanian
+ * 
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class ParallelBatchConverter implements AutoCloseable {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+	// chunks are split until a task converts at most this many lines
+	private static final int SPLIT_THRESHOLD = 64;
+	private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 4;
+
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+	private final boolean ordered;
+
+	/**
+	 * @param parallelism number of worker threads, all available processors if
+	 *                    less than 1
+	 * @param chunkSize   number of lines read into a chunk
+	 * @param ordered     true to emit results in input order, false to emit
+	 *                    them as chunks complete
+	 */
+	public ParallelBatchConverter(int parallelism, int chunkSize, boolean ordered) {
+		this.pool = new ForkJoinPool(parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism);
+		this.chunkSize = chunkSize < 1 ? DEFAULT_CHUNK_SIZE : chunkSize;
+		this.ordered = ordered;
+	}
+
+	/**
+	 * Convert all inputs against the same targets, see
+	 * {@link TimeConversionUtil#convertDateTimes(Iterable, String, ZonedDateTime, String[], String[], String[], Consumer)}.
+	 * 
+	 * @param inputs   Date times in natural language, one per element
+	 * @param format   date or time format
+	 * @param dateTime Base Date Time, current time if null
+	 * @param consumer receives one result per non blank input
+	 * @return throughput of the batch
+	 * @throws IllegalArgumentException if the format or an offset is invalid,
+	 *                                  before any input is read
+	 * @throws InterruptedException     if interrupted while waiting for a chunk
+	 */
+	public BatchStatistics convert(Iterator<String> inputs, String format, ZonedDateTime dateTime,
+			String[] timeZones, String[] countries, String[] offsets, Consumer<ConversionResult> consumer)
+			throws InterruptedException {
+		return convert(inputs, ConversionPlan.of(format, timeZones, countries, offsets), dateTime, consumer);
+	}
+
+	/**
+	 * Convert all inputs with a plan built by the caller.
+	 * 
+	 * @param inputs   Date times in natural language, one per element
+	 * @param plan     targets of the conversion
+	 * @param dateTime Base Date Time, current time if null
+	 * @param consumer receives one result per non blank input
+	 * @return throughput of the batch
+	 * @throws InterruptedException if interrupted while waiting for a chunk
+	 */
+	public BatchStatistics convert(Iterator<String> inputs, ConversionPlan plan, ZonedDateTime dateTime,
+			Consumer<ConversionResult> consumer) throws InterruptedException {
+		final ZonedDateTime baseTime = dateTime == null ? ZonedDateTime.now() : dateTime;
+		long start = System.nanoTime();
+		int maxInFlight = pool.getParallelism() * CHUNKS_IN_FLIGHT_PER_THREAD;
+		ArrayDeque<ForkJoinTask<List<ConversionResult>>> pending = new ArrayDeque<>();
+		BlockingQueue<ForkJoinTask<List<ConversionResult>>> completed = new LinkedBlockingQueue<>();
+		long[] counts = new long[2];
+		int inFlight = 0;
+		long lineNumber = 0;
+
+		while (inputs.hasNext()) {
+			List<String> lines = new ArrayList<>(chunkSize);
+			long firstLine = lineNumber + 1;
+			while (lines.size() < chunkSize && inputs.hasNext()) {
+				lines.add(inputs.next());
+				lineNumber++;
+			}
+			ChunkTask task = new ChunkTask(lines, 0, lines.size(), firstLine, plan, baseTime);
+			if (ordered) {
+				pending.add(pool.submit(task));
+				if (pending.size() >= maxInFlight) {
+					emit(pending.poll().join(), consumer, counts);
+				}
+			} else {
+				pool.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							task.invoke();
+						} finally {
+							// join() in the caller rethrows if the task failed
+							completed.add(task);
+						}
+					}
+				});
+				if (++inFlight >= maxInFlight) {
+					emit(completed.take().join(), consumer, counts);
+					inFlight--;
+				}
+			}
+		}
+		while (!pending.isEmpty()) {
+			emit(pending.poll().join(), consumer, counts);
+		}
+		for (; inFlight > 0; inFlight--) {
+			emit(completed.take().join(), consumer, counts);
+		}
+		return new BatchStatistics(counts[0], counts[1], System.nanoTime() - start, pool.getParallelism());
+	}
+
+	private static void emit(List<ConversionResult> results, Consumer<ConversionResult> consumer, long[] counts) {
+		for (ConversionResult result : results) {
+			counts[0]++;
+			if (!result.isSuccess()) {
+				counts[1]++;
+			}
+			consumer.accept(result);
+		}
+	}
+
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Converts a range of a chunk, splitting it in halves while it is larger
+	 * than {@link #SPLIT_THRESHOLD}. The parser keeps all its working state local
+	 * to the call, so the workers share the one parser and the one
+	 * {@link ConversionPlan} of the batch.
+	 */
+	private static class ChunkTask extends RecursiveTask<List<ConversionResult>> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> lines;
+		private final int from;
+		private final int to;
+		private final long firstLine;
+		private final ConversionPlan plan;
+		private final ZonedDateTime dateTime;
+
+		ChunkTask(List<String> lines, int from, int to, long firstLine, ConversionPlan plan, ZonedDateTime dateTime) {
+			this.lines = lines;
+			this.from = from;
+			this.to = to;
+			this.firstLine = firstLine;
+			this.plan = plan;
+			this.dateTime = dateTime;
+		}
+
+		@Override
+		protected List<ConversionResult> compute() {
+			if (to - from <= SPLIT_THRESHOLD) {
+				List<ConversionResult> results = new ArrayList<>(to - from);
+				for (int i = from; i < to; i++) {
+					String input = lines.get(i);
+					if (StringUtils.isNotBlank(input)) {
+						results.add(TimeConversionUtil.convertQuietly(firstLine + i, input, plan, dateTime));
+					}
+				}
+				return results;
+			}
+			int middle = (from + to) >>> 1;
+			ChunkTask left = new ChunkTask(lines, from, middle, firstLine, plan, dateTime);
+			ChunkTask right = new ChunkTask(lines, middle, to, firstLine, plan, dateTime);
+			right.fork();
+			List<ConversionResult> results = left.compute();
+			results.addAll(right.join());
+			return results;
+		}
+	}
+
+}
@@ -0,0 +1,198 @@
+package com.vigneshbala.twi.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.vigneshbala.twi.model.CountryRecord;
+
+/**
+ * Compact binary form of the country reference data, compiled from the JSON
+ * files at build time (process-classes phase) so that startup neither loads
+ * org.json nor parses JSON. Zone ids are written once to a string table and
+ * countries refer to them by index, so each zone is resolved only once.
+ *
+ * Layout: magic, format version, CRC32 of the JSON sources, byte length of
+ * each JSON source, zone id table, then per country the map key, name, alpha2
+ * code, alpha3 code and zone indices.
+ *
+ * The checksum and the lengths are taken when the snapshot is built. At
+ * runtime the snapshot is checked against the lengths the class path reports
+ * for the sources, which does not read them, so the JSON is only read when
+ * the snapshot is missing or stale.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class ReferenceDataSnapshot {
+
+	static final String FILE_NAME = "country-data.bin";
+	private static final String RESOURCE = "/referencedata/" + FILE_NAME;
+	private static final int MAGIC = 0x54574952;
+	private static final int FORMAT_VERSION = 2;
+
+	private ReferenceDataSnapshot() {
+	}
+
+	/**
+	 * Build time entry point, compiles the JSON reference data on the class path
+	 * into the snapshot.
+	 *
+	 * @param args output directory of the snapshot
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 1) {
+			throw new Exception("Usage: ReferenceDataSnapshot <output directory>");
+		}
+		File output = new File(args[0], FILE_NAME);
+		Map<String, CountryRecord> countries = ReferenceDataUtil.loadFromJson();
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(output)))) {
+			write(countries, ReferenceDataUtil.getSourceChecksum(), ReferenceDataUtil.getSourceLengths(), out);
+		}
+	}
+
+	static void write(Map<String, CountryRecord> countries, long sourceChecksum, long[] sourceLengths,
+			DataOutputStream out) throws IOException {
+		Map<String, Integer> zoneIndex = new LinkedHashMap<>();
+		for (CountryRecord country : countries.values()) {
+			for (ZoneId zone : country.getTimeZones()) {
+				if (!zoneIndex.containsKey(zone.getId())) {
+					zoneIndex.put(zone.getId(), zoneIndex.size());
+				}
+			}
+		}
+
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeLong(sourceChecksum);
+		out.writeInt(sourceLengths.length);
+		for (long length : sourceLengths) {
+			out.writeLong(length);
+		}
+		out.writeInt(zoneIndex.size());
+		for (String zoneId : zoneIndex.keySet()) {
+			out.writeUTF(zoneId);
+		}
+		out.writeInt(countries.size());
+		for (Entry<String, CountryRecord> entry : countries.entrySet()) {
+			CountryRecord country = entry.getValue();
+			out.writeUTF(entry.getKey());
+			writeNullable(out, country.getCountryName());
+			writeNullable(out, country.getAlpha2Code());
+			writeNullable(out, country.getAlpha3Code());
+			out.writeShort(country.getTimeZones().size());
+			for (ZoneId zone : country.getTimeZones()) {
+				out.writeShort(zoneIndex.get(zone.getId()));
+			}
+		}
+	}
+
+	/**
+	 * @return the countries keyed by alpha2 code, null if there is no snapshot or
+	 *         it is stale
+	 * @see #read(long[])
+	 */
+	static Map<String, CountryRecord> read() throws IOException {
+		return read(ReferenceDataUtil.getSourceLengths());
+	}
+
+	/**
+	 * @param sourceLengths byte length of each JSON source currently on the class
+	 *                      path, -1 where it is not known
+	 * @return the countries keyed by alpha2 code, null if there is no snapshot or
+	 *         it is stale (other format version, sources of another length or a
+	 *         zone the runtime does not know)
+	 */
+	static Map<String, CountryRecord> read(long[] sourceLengths) throws IOException {
+		InputStream stream = ReferenceDataSnapshot.class.getResourceAsStream(RESOURCE);
+		if (stream == null) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+			in.readLong();
+			if (in.readInt() != sourceLengths.length) {
+				return null;
+			}
+			for (long length : sourceLengths) {
+				if (in.readLong() != length && length >= 0) {
+					return null;
+				}
+			}
+			ZoneId[] zones = new ZoneId[in.readInt()];
+			for (int i = 0; i < zones.length; i++) {
+				zones[i] = ZoneId.of(in.readUTF());
+			}
+			int count = in.readInt();
+			Map<String, CountryRecord> countries = new HashMap<String, CountryRecord>();
+			for (int i = 0; i < count; i++) {
+				String key = in.readUTF();
+				CountryRecord country = new CountryRecord();
+				String name = readNullable(in);
+				String alpha2Code = readNullable(in);
+				String alpha3Code = readNullable(in);
+				if (name != null) {
+					country.setCountryName(name);
+				}
+				if (alpha2Code != null) {
+					country.setAlpha2Code(alpha2Code);
+				}
+				if (alpha3Code != null) {
+					country.setAlpha3Code(alpha3Code);
+				}
+				int zoneCount = in.readShort();
+				for (int z = 0; z < zoneCount; z++) {
+					country.addTimeZone(zones[in.readShort()]);
+				}
+				countries.put(key, country);
+			}
+			return countries;
+		} catch (DateTimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return CRC32 of the JSON sources the snapshot was built from, -1 if there
+	 *         is no snapshot of this format version
+	 */
+	static long readSourceChecksum() throws IOException {
+		InputStream stream = ReferenceDataSnapshot.class.getResourceAsStream(RESOURCE);
+		if (stream == null) {
+			return -1;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return -1;
+			}
+			return in.readLong();
+		}
+	}
+
+	private static void writeNullable(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readNullable(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+}
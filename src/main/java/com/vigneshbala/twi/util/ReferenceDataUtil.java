@@ -1,9 +1,12 @@
 package com.vigneshbala.twi.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.net.URI;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -14,8 +17,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.CRC32;
 
-import org.apache.commons.lang3.StringEscapeUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -28,79 +31,197 @@ import com.vigneshbala.twi.model.CountryRecord;
  */
 public class ReferenceDataUtil {
 
-	private static Path COUNTRY_NAMES_JSON = null;
-	private static Path COUNTRY_CODES_JSON = null;
-	private static Path COUNTRY_TIME_ZONES_JSON = null;
+	private static final String COUNTRY_NAMES_JSON = "/referencedata/country-names.json";
+	private static final String COUNTRY_CODES_JSON = "/referencedata/country-codes.json";
+	private static final String COUNTRY_TIME_ZONES_JSON = "/referencedata/country-timezones.json";
+	private static final List<String> SOURCE_JSON = Arrays.asList(COUNTRY_NAMES_JSON, COUNTRY_CODES_JSON,
+			COUNTRY_TIME_ZONES_JSON);
 
 	private static final List<String> TIME_ZONE_SPECIFIERS = Arrays.asList("standard", "std", "time", "timezone",
 			"zone", "day", "light", "daylight", "savings");
 
-	private static Map<String, CountryRecord> countryMap = new HashMap<String, CountryRecord>();
+	// null until first use, the map and its index are always replaced together
+	private static volatile CountryData countryData;
+
+	/**
+	 * Load the country reference data. The binary snapshot compiled at build time
+	 * (see {@link ReferenceDataSnapshot}) is used when it is present and was
+	 * built from the same JSON sources, otherwise the JSON files are parsed.
+	 * Reloading replaces the data instead of adding to it.
+	 * 
+	 * The data is loaded on first use anyway, calling this method only moves
+	 * the cost up front (e.g. when a server starts). The alias index
+	 * ({@link #getCountryIndex()}) is rebuilt with the data.
+	 */
+	public static synchronized void loadCountryData() throws IOException {
+		countryData = readCountryData();
+	}
+
+	private static CountryData readCountryData() throws IOException {
+		Map<String, CountryRecord> countries = ReferenceDataSnapshot.read();
+		if (countries == null) {
+			countries = loadFromJson();
+		}
+		return new CountryData(countries, new CountryIndex(countries.values()));
+	}
+
+	private static CountryData getCountryData() {
+		CountryData data = countryData;
+		if (data == null) {
+			synchronized (ReferenceDataUtil.class) {
+				data = countryData;
+				if (data == null) {
+					try {
+						data = readCountryData();
+					} catch (IOException e) {
+						throw new UncheckedIOException("Country reference data could not be loaded", e);
+					}
+					countryData = data;
+				}
+			}
+		}
+		return data;
+	}
 
-	public static void loadCountryData() throws FileNotFoundException, IOException, URISyntaxException {
-		URI uri = ReferenceDataUtil.class.getResource("/referencedata").toURI();
-		String dirPath = Paths.get(uri).toString();
-		COUNTRY_NAMES_JSON = Paths.get(dirPath, "country-names.json");
-		COUNTRY_CODES_JSON = Paths.get(dirPath, "country-codes.json");
-		COUNTRY_TIME_ZONES_JSON = Paths.get(dirPath, "country-timezones.json");
-		loadCountryNames();
-		loadCountryCodes();
-		loadCountryTimeZones();
+	static Map<String, CountryRecord> loadFromJson() throws IOException {
+		Map<String, CountryRecord> countries = new HashMap<String, CountryRecord>();
+		loadCountryNames(countries);
+		loadCountryCodes(countries);
+		loadCountryTimeZones(countries);
+		return countries;
 	}
 
-	private static void loadCountryNames() throws FileNotFoundException, IOException {
+	private static void loadCountryNames(Map<String, CountryRecord> countries) throws IOException {
 
-		JSONObject countries = new JSONObject(readFileAsString(COUNTRY_NAMES_JSON));
-		for (String alpha2Code : countries.keySet()) {
-			CountryRecord countryRecord = getOrCreate(alpha2Code);
-			countryRecord.setCountryName((String) countries.get(alpha2Code));
-			countryMap.put(alpha2Code, countryRecord);
+		JSONObject names = new JSONObject(readResourceAsString(COUNTRY_NAMES_JSON));
+		for (String alpha2Code : names.keySet()) {
+			CountryRecord countryRecord = getOrCreate(countries, alpha2Code);
+			countryRecord.setCountryName((String) names.get(alpha2Code));
+			countries.put(alpha2Code, countryRecord);
 
 		}
 
 	}
 
-	private static CountryRecord getOrCreate(String alpha2Code) {
-		return countryMap.containsKey(alpha2Code) ? countryMap.get(alpha2Code) : new CountryRecord();
+	private static CountryRecord getOrCreate(Map<String, CountryRecord> countries, String alpha2Code) {
+		return countries.containsKey(alpha2Code) ? countries.get(alpha2Code) : new CountryRecord();
 	}
 
-	private static void loadCountryCodes() throws FileNotFoundException, IOException {
+	private static void loadCountryCodes(Map<String, CountryRecord> countries) throws IOException {
 
-		JSONObject countries = new JSONObject(readFileAsString(COUNTRY_CODES_JSON));
-		for (String alpha2Code : countries.keySet()) {
-			CountryRecord countryRecord = getOrCreate(alpha2Code);
-			countryRecord.setAlpha3Code((String) countries.get(alpha2Code));
+		JSONObject codes = new JSONObject(readResourceAsString(COUNTRY_CODES_JSON));
+		for (String alpha2Code : codes.keySet()) {
+			CountryRecord countryRecord = getOrCreate(countries, alpha2Code);
+			countryRecord.setAlpha3Code((String) codes.get(alpha2Code));
 			countryRecord.setAlpha2Code(alpha2Code);
-			countryMap.put(alpha2Code, countryRecord);
+			countries.put(alpha2Code, countryRecord);
 
 		}
 
 	}
 
-	private static void loadCountryTimeZones() throws FileNotFoundException, IOException {
+	private static void loadCountryTimeZones(Map<String, CountryRecord> countries) throws IOException {
 
-		JSONArray records = new JSONArray(readFileAsString(COUNTRY_TIME_ZONES_JSON));
+		JSONArray records = new JSONArray(readResourceAsString(COUNTRY_TIME_ZONES_JSON));
 		for (Object jsonRecord : records) {
 			String alpha2Code = ((JSONObject) jsonRecord).get("IsoAlpha2").toString();
-			CountryRecord countryRecord = getOrCreate(alpha2Code);
+			CountryRecord countryRecord = getOrCreate(countries, alpha2Code);
 			JSONArray timezones = (JSONArray) ((JSONObject) jsonRecord).get("TimeZones");
 			for (Object timezone : timezones) {
 				countryRecord.addTimeZone(ZoneId.of(timezone.toString()));
 			}
-			countryMap.put(alpha2Code, countryRecord);
+			countries.put(alpha2Code, countryRecord);
 		}
 
 	}
 
+	/**
+	 * @return CRC32 over the JSON sources, recorded in the snapshot when it is
+	 *         built
+	 */
+	static long getSourceChecksum() throws IOException {
+		CRC32 checksum = new CRC32();
+		for (String resource : SOURCE_JSON) {
+			checksum.update(readResource(resource));
+		}
+		return checksum.getValue();
+	}
+
+	/**
+	 * @return byte length of each JSON source as reported by the file system or
+	 *         the jar directory, without reading the source, -1 where the class
+	 *         path cannot tell
+	 */
+	static long[] getSourceLengths() throws IOException {
+		long[] lengths = new long[SOURCE_JSON.size()];
+		for (int i = 0; i < lengths.length; i++) {
+			URL url = ReferenceDataUtil.class.getResource(SOURCE_JSON.get(i));
+			if (url == null) {
+				throw new FileNotFoundException(SOURCE_JSON.get(i));
+			}
+			if ("file".equals(url.getProtocol())) {
+				try {
+					lengths[i] = Files.size(Paths.get(url.toURI()));
+				} catch (URISyntaxException e) {
+					lengths[i] = -1;
+				}
+			} else {
+				lengths[i] = url.openConnection().getContentLengthLong();
+			}
+		}
+		return lengths;
+	}
+
+	private static byte[] readResource(String resource) throws IOException {
+		try (InputStream stream = ReferenceDataUtil.class.getResourceAsStream(resource)) {
+			if (stream == null) {
+				throw new FileNotFoundException(resource);
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = stream.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		}
+	}
+
+	private static String readResourceAsString(String resource) throws IOException {
+		return new String(readResource(resource), StandardCharsets.UTF_8);
+	}
+
 	public static String readFileAsString(Path filePath) throws IOException {
 		return new String(Files.readAllBytes(filePath), Charset.forName(StandardCharsets.UTF_8.name()));
 	}
 
+	/**
+	 * @return countries by alpha2 code, loaded on first use
+	 * @throws UncheckedIOException if the reference data cannot be read
+	 */
 	public static Map<String, CountryRecord> getCountryMap() {
-		return countryMap;
+		return getCountryData().countries;
+	}
+
+	/**
+	 * @return alias index of the countries, loaded on first use
+	 * @throws UncheckedIOException if the reference data cannot be read
+	 */
+	public static CountryIndex getCountryIndex() {
+		return getCountryData().index;
 	}
 
 	public static List<String> getTimeZoneSpecifiers() {
 		return TIME_ZONE_SPECIFIERS;
 	}
+
+	private static final class CountryData {
+		private final Map<String, CountryRecord> countries;
+		private final CountryIndex index;
+
+		CountryData(Map<String, CountryRecord> countries, CountryIndex index) {
+			this.countries = countries;
+			this.index = index;
+		}
+	}
 }
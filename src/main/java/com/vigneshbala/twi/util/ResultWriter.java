@@ -0,0 +1,271 @@
+package com.vigneshbala.twi.util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+
+import com.vigneshbala.twi.model.ConversionResult;
+
+/**
+ * Writes batch results to a channel (STDOUT or a file) one line per input.
+ * Every row is assembled in a reused buffer, converted date times are
+ * formatted straight into it by the {@link ConversionPlan}, and the row is
+ * encoded into a reused byte buffer that goes to the channel when full, so
+ * writing a row creates no Strings.
+ *
+ * Line formats:
+ * <ul>
+ * <li>PLAIN - the output as printed for a single conversion, failures go to
+ * the error stream as "line n: input : message"</li>
+ * <li>CSV - a "line,input,output,error" header and one RFC 4180 row per
+ * input</li>
+ * <li>JSON - one object per line, {"line":n,"input":"...","output":"..."} or
+ * "error" instead of "output"</li>
+ * </ul>
+ *
+ * Not thread safe, results are written from the thread that consumes the
+ * batch.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class ResultWriter implements Closeable, Flushable {
+
+	public enum LineFormat {
+		PLAIN, CSV, JSON
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String CSV_HEADER = "line,input,output,error";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final WritableByteChannel channel;
+	private final LineFormat lineFormat;
+	private final ConversionPlan plan;
+	private final PrintStream errors;
+	private final boolean flushEachLine;
+	private final String lineSeparator = System.lineSeparator();
+
+	private final StringBuilder row = new StringBuilder(256);
+	private final StringBuilder field = new StringBuilder(256);
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+	private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private char[] chars = new char[256];
+
+	/**
+	 * @param channel       where the rows go, closed with the writer
+	 * @param lineFormat    row layout
+	 * @param plan          conversion the rows are rendered with
+	 * @param errors        receives the failures of the PLAIN format
+	 * @param flushEachLine write every row to the channel right away, e.g. for
+	 *                      an interactive terminal
+	 */
+	public ResultWriter(WritableByteChannel channel, LineFormat lineFormat, ConversionPlan plan, PrintStream errors,
+			boolean flushEachLine) throws IOException {
+		this.channel = channel;
+		this.lineFormat = lineFormat;
+		this.plan = plan;
+		this.errors = errors;
+		this.flushEachLine = flushEachLine;
+		if (lineFormat == LineFormat.CSV) {
+			row.append(CSV_HEADER).append(lineSeparator);
+			writeRow();
+		}
+	}
+
+	/**
+	 * Parse and convert one input and write its row.
+	 *
+	 * @param lineNumber 1 based position of the input
+	 * @param input      Date time in natural language
+	 * @param baseTime   Base Date Time
+	 * @return true if the input was converted, false if a failure was written
+	 * @throws IOException if the channel cannot be written
+	 */
+	public boolean convert(long lineNumber, String input, ZonedDateTime baseTime) throws IOException {
+		field.setLength(0);
+		try {
+			plan.appendTo(plan.parse(input, baseTime), field);
+		} catch (Exception e) {
+			writeFailure(lineNumber, input, e);
+			return false;
+		}
+		writeOutput(lineNumber, input);
+		return true;
+	}
+
+	/**
+	 * Write a result converted elsewhere, e.g. by a parallel batch.
+	 *
+	 * @throws IOException if the channel cannot be written
+	 */
+	public void write(ConversionResult result) throws IOException {
+		if (!result.isSuccess()) {
+			writeFailure(result.getLineNumber(), result.getInput(), result.getError());
+			return;
+		}
+		field.setLength(0);
+		field.append(result.getOutput());
+		writeOutput(result.getLineNumber(), result.getInput());
+	}
+
+	private void writeOutput(long lineNumber, String input) throws IOException {
+		switch (lineFormat) {
+		case CSV:
+			row.append(lineNumber).append(',');
+			appendCsv(input);
+			row.append(',');
+			appendCsv(field);
+			row.append(',');
+			break;
+		case JSON:
+			row.append("{\"line\":").append(lineNumber).append(",\"input\":");
+			appendJson(input);
+			row.append(",\"output\":");
+			appendJson(field);
+			row.append('}');
+			break;
+		default:
+			row.append(field);
+		}
+		row.append(lineSeparator);
+		writeRow();
+	}
+
+	private void writeFailure(long lineNumber, String input, Exception error) throws IOException {
+		String message = String.valueOf(error.getMessage());
+		switch (lineFormat) {
+		case CSV:
+			row.append(lineNumber).append(',');
+			appendCsv(input);
+			row.append(",,");
+			appendCsv(message);
+			break;
+		case JSON:
+			row.append("{\"line\":").append(lineNumber).append(",\"input\":");
+			appendJson(input);
+			row.append(",\"error\":");
+			appendJson(message);
+			row.append('}');
+			break;
+		default:
+			// keep STDOUT in step with STDERR
+			flush();
+			errors.println("line " + lineNumber + ": " + input + " : " + message);
+			return;
+		}
+		row.append(lineSeparator);
+		writeRow();
+	}
+
+	private void appendCsv(CharSequence value) {
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if (!quote) {
+			row.append(value);
+			return;
+		}
+		row.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				row.append('"');
+			}
+			row.append(c);
+		}
+		row.append('"');
+	}
+
+	private void appendJson(CharSequence value) {
+		row.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				row.append("\\\"");
+				break;
+			case '\\':
+				row.append("\\\\");
+				break;
+			case '\n':
+				row.append("\\n");
+				break;
+			case '\r':
+				row.append("\\r");
+				break;
+			case '\t':
+				row.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					row.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+				} else {
+					row.append(c);
+				}
+			}
+		}
+		row.append('"');
+	}
+
+	/**
+	 * Encode the row into the byte buffer, writing the buffer out whenever it
+	 * fills up.
+	 */
+	private void writeRow() throws IOException {
+		int length = row.length();
+		if (chars.length < length) {
+			chars = new char[Math.max(length, chars.length * 2)];
+		}
+		row.getChars(0, length, chars, 0);
+		row.setLength(0);
+		CharBuffer pending = CharBuffer.wrap(chars, 0, length);
+		while (true) {
+			CoderResult result = encoder.encode(pending, bytes, false);
+			if (result.isOverflow()) {
+				drain();
+			} else if (result.isUnderflow()) {
+				break;
+			} else {
+				result.throwException();
+			}
+		}
+		if (flushEachLine) {
+			flush();
+		}
+	}
+
+	private void drain() throws IOException {
+		bytes.flip();
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+		bytes.clear();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+}
@@ -3,21 +3,15 @@ package com.vigneshbala.twi.util;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.TextStyle;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Locale;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 
-import com.vigneshbala.twi.model.CountryRecord;
-import com.vigneshbala.twi.model.ParserResult;
-import com.vigneshbala.twi.nlp.DateTimeNLPParser;
+import com.vigneshbala.twi.model.Conversion;
+import com.vigneshbala.twi.model.ConversionResult;
 
 /**
  * (c) 2024 Vignesh Balasubramanian
@@ -25,12 +19,20 @@ import com.vigneshbala.twi.nlp.DateTimeNLPParser;
  * This code is licensed under MIT license (see LICENSE for details)
  */
 public class TimeConversionUtil {
+	public static final String DEFAULT_FORMAT = "dd/MM/yyyy hh:mm:ss a Z";
 	private static final String INVALID_OFFSET_FORMAT = "Invalid Offset Format.. supported formats: +8, +8.5,+08:00,+08:30,-8, -8.5 -08:00,-08:30";
-	private static final String DOT = ".";
-	private static final String ESCAPED_DOT = "\\.";
-	private static final String COLON = ":";
-
-	private final static Logger LOGGER = Logger.getLogger(TimeConversionUtil.class.getName());
+	private static final int MAX_OFFSET_MINUTES = 18 * 60;
+	private static final int OFFSET_STEP_MINUTES = 15;
+	private static final int MAX_FRACTION_DIGITS = 4;
+	// UTC+hh:mm zones for every quarter hour offset between -18:00 and +18:00
+	private static final ZoneId[] QUARTER_HOUR_OFFSETS = new ZoneId[2 * MAX_OFFSET_MINUTES / OFFSET_STEP_MINUTES + 1];
+
+	static {
+		for (int i = 0; i < QUARTER_HOUR_OFFSETS.length; i++) {
+			QUARTER_HOUR_OFFSETS[i] = ZoneId.ofOffset("UTC",
+					ZoneOffset.ofTotalSeconds((i * OFFSET_STEP_MINUTES - MAX_OFFSET_MINUTES) * 60));
+		}
+	}
 
 	/**
 	 * Convert the date time based on Natural Language input
@@ -43,143 +45,158 @@ public class TimeConversionUtil {
 	 */
 	public static String convertDateTime(String input, String format, ZonedDateTime dateTime, String[] timeZones,
 			String[] countries, String[] offsets) throws Exception {
-		String result = null;
-		StringBuilder sb = new StringBuilder();
-		DateTimeNLPParser parser = new DateTimeNLPParser();
-		ParserResult output = parser.parse(input, dateTime, format);
-		if (timeZones != null) {
-			sb.append(StringUtils.join(convertTimeZones(format, timeZones, output), ","));
-		}
-
-		if (offsets != null) {
-			sb.append(StringUtils.join(convertoffsets(format, offsets, output), ","));
+		return ConversionPlan.of(format, timeZones, countries, offsets).convert(input, dateTime);
+	}
 
-		}
-		if (countries != null) {
-			sb.append(convertCountries(format, countries, output));
+	/**
+	 * Typed variant of
+	 * {@link #convertDateTime(String, String, ZonedDateTime, String[], String[], String[])}
+	 * for callers that need the converted instants rather than text.
+	 * 
+	 * @param input  Date time in natural language
+	 * @param format date or time format, used when the text is requested
+	 * @return the parsed input and the converted date time of every target
+	 * @throws Exception if the input cannot be parsed or an offset is invalid
+	 */
+	public static Conversion convert(String input, String format, ZonedDateTime dateTime, String[] timeZones,
+			String[] countries, String[] offsets) throws Exception {
+		return ConversionPlan.of(format, timeZones, countries, offsets).resolve(input, dateTime);
+	}
 
+	/**
+	 * Convert a batch of Natural Language inputs against the same targets. Each
+	 * input is converted as with
+	 * {@link #convertDateTime(String, String, ZonedDateTime, String[], String[], String[])}
+	 * and handed to the consumer as soon as it is done, failures are reported
+	 * through {@link ConversionResult#getError()} instead of stopping the batch.
+	 * Blank inputs are skipped.
+	 * 
+	 * @param inputs   Date times in natural language, one per element
+	 * @param format   date or time format
+	 * @param dateTime Base Date Time, current time if null
+	 * @param consumer receives one result per non blank input, in input order
+	 * @throws IllegalArgumentException if the format or an offset is invalid,
+	 *                                  before any input is converted
+	 */
+	public static void convertDateTimes(Iterable<String> inputs, String format, ZonedDateTime dateTime,
+			String[] timeZones, String[] countries, String[] offsets, Consumer<ConversionResult> consumer) {
+		ConversionPlan plan = ConversionPlan.of(format, timeZones, countries, offsets);
+		long lineNumber = 0;
+		for (String input : inputs) {
+			lineNumber++;
+			if (StringUtils.isNotBlank(input)) {
+				consumer.accept(convertQuietly(lineNumber, input, plan, dateTime));
+			}
 		}
-		if (timeZones == null && offsets == null && countries == null) {
-			result = output.getPrettyPrintedResult();
-		} else {
-			result = sb.toString();
-		}
-
-		return result;
 	}
 
-	private static String convertCountries(String format, String[] countries, ParserResult parserResult) {
-		StringBuilder result = new StringBuilder();
-		for (String country : countries) {
-			for (Entry<String, CountryRecord> entry : ReferenceDataUtil.getCountryMap().entrySet()) {
-				if (matchesCountryCodeOrName(country, entry.getValue())) {
-					result.append(entry.getValue().getAlpha2Code());
-					result.append(COLON);
-					result.append("\n");
-					for (ZoneId zone : entry.getValue().getTimeZones()) {
-						result.append(zone);
-						result.append(COLON);
-						result.append(parserResult.getToDateTime().withZoneSameInstant(zone)
-								.format(DateTimeFormatter.ofPattern(format)));
-						result.append("\n");
-					}
+	/**
+	 * Stream variant of
+	 * {@link #convertDateTimes(Iterable, String, ZonedDateTime, String[], String[], String[], Consumer)}.
+	 * The inputs are converted lazily as the returned stream is consumed. The
+	 * stream is processed sequentially so that line numbers follow the input
+	 * order.
+	 * 
+	 * @param inputs   Date times in natural language
+	 * @param format   date or time format
+	 * @param dateTime Base Date Time, current time if null
+	 * @return one result per non blank input
+	 * @throws IllegalArgumentException if the format or an offset is invalid
+	 */
+	public static Stream<ConversionResult> convertDateTimes(Stream<String> inputs, String format,
+			ZonedDateTime dateTime, String[] timeZones, String[] countries, String[] offsets) {
+		ConversionPlan plan = ConversionPlan.of(format, timeZones, countries, offsets);
+		AtomicLong lineNumber = new AtomicLong();
+		return inputs.sequential().map(input -> {
+			long number = lineNumber.incrementAndGet();
+			return StringUtils.isBlank(input) ? null
+					: convertQuietly(number, input, plan, dateTime);
+		}).filter(Objects::nonNull);
+	}
 
-				}
-			}
+	static ConversionResult convertQuietly(long lineNumber, String input, ConversionPlan plan,
+			ZonedDateTime dateTime) {
+		try {
+			return new ConversionResult(lineNumber, input, plan.convert(input, dateTime));
+		} catch (Exception e) {
+			return new ConversionResult(lineNumber, input, e);
 		}
-		return result.toString();
 	}
 
-	private static Set<String> convertoffsets(String format, String[] offsets, ParserResult parserResult)
-			throws Exception {
-		Set<String> result = new HashSet<>();
-		for (String offset : offsets) {
-			StringBuilder sb = new StringBuilder();
-			sb.append(offset);
-			sb.append(" ");
-			sb.append(COLON);
-			sb.append(parserResult.getToDateTime().withZoneSameInstant(ZoneId.of("UTC"))
-					.withZoneSameInstant(getTimeZoneForOffset(offset)).format(DateTimeFormatter.ofPattern(format)));
-
-			result.add(sb.toString());
+	static ZoneId[] resolveOffsets(String[] offsets) throws Exception {
+		if (offsets == null) {
+			return null;
 		}
-		return result;
+		ZoneId[] zones = new ZoneId[offsets.length];
+		for (int i = 0; i < offsets.length; i++) {
+			zones[i] = getTimeZoneForOffset(offsets[i]);
+		}
+		return zones;
 	}
 
-	private static ZoneId getTimeZoneForOffset(String offset) throws Exception {
-		LOGGER.fine("Processing Offset: " + offset);
+	/**
+	 * Parse an offset from UTC: sign, one or two digit hours and optionally
+	 * minutes (+08:30) or a decimal fraction of an hour (+8.5, +5.75). The sign
+	 * applies to the minutes as well, -8.5 is eight and a half hours behind
+	 * UTC.
+	 * 
+	 * @param offset offset from UTC
+	 * @return UTC offset zone, shared for quarter hour offsets
+	 * @throws Exception if the offset is not in a supported format or beyond
+	 *                   +/-18:00
+	 */
+	static ZoneId getTimeZoneForOffset(String offset) throws Exception {
+		int length = offset.length();
+		if (length < 2 || (offset.charAt(0) != '+' && offset.charAt(0) != '-')) {
+			throw new Exception(INVALID_OFFSET_FORMAT);
+		}
+		int index = 1;
+		int hours = 0;
+		while (index < length && isDigit(offset.charAt(index))) {
+			hours = hours * 10 + (offset.charAt(index++) - '0');
+		}
+		int hourDigits = index - 1;
+		if (hourDigits < 1 || hourDigits > 2) {
+			throw new Exception(INVALID_OFFSET_FORMAT);
+		}
 		int minutes = 0;
-		int hour = 0;
-		int offsetPlusOrMinus = extractOffsetPlusorMinus(offset);
-		offset = offset.substring(1);
-		boolean isMinuteAvailable = offset.contains(COLON) || offset.contains(DOT);
-		if (isMinuteAvailable) {
-			String delimiter = offset.contains(COLON) ? COLON : ESCAPED_DOT;
-			String[] tokens = offset.split(delimiter);
-			if (tokens.length > 2) {
+		if (index < length) {
+			char delimiter = offset.charAt(index++);
+			int digitsStart = index;
+			int value = 0;
+			int scale = 1;
+			while (index < length && isDigit(offset.charAt(index)) && index - digitsStart < MAX_FRACTION_DIGITS) {
+				value = value * 10 + (offset.charAt(index++) - '0');
+				scale *= 10;
+			}
+			int digits = index - digitsStart;
+			if (index < length || digits == 0) {
 				throw new Exception(INVALID_OFFSET_FORMAT);
+			}
+			if (delimiter == ':' && digits <= 2 && value < 60) {
+				minutes = value;
+			} else if (delimiter == '.') {
+				// 8.5 --> 30 minutes, 5.75 --> 45 minutes
+				minutes = value * 60 / scale;
 			} else {
-				// convert hour string to + or minus integer
-				hour = Integer.parseInt(tokens[0]) * offsetPlusOrMinus;
-				if (tokens.length > 1) {
-					// 8.5 --> 30 minutes, 08:30--> 30 minutes, so using the terminal operator
-					minutes = (int) (delimiter.equals(COLON) ? Integer.parseInt(tokens[1])
-							: 60 * (Double.parseDouble(tokens[1]) / 10));
-				}
+				throw new Exception(INVALID_OFFSET_FORMAT);
 			}
-
-		} else {
-			hour = Integer.parseInt(offset) * offsetPlusOrMinus;
 		}
-		ZoneId dateTimeZone = ZoneId.ofOffset("UTC", ZoneOffset.ofHoursMinutes(hour, minutes));
-		LOGGER.fine("Time Zone for offset:" + dateTimeZone.toString());
-		return dateTimeZone;
-	}
-
-	private static int extractOffsetPlusorMinus(String offset) throws Exception {
-		if (offset.startsWith("+")) {
-			return 1;
-
-		} else if (offset.startsWith("-")) {
-			return -1;
-
-		} else {
+		int totalMinutes = hours * 60 + minutes;
+		if (totalMinutes > MAX_OFFSET_MINUTES) {
 			throw new Exception(INVALID_OFFSET_FORMAT);
 		}
-
-	}
-
-	private static Set<String> convertTimeZones(String format, String[] timeZones, ParserResult parserResult) {
-		Set<String> result = new HashSet<>();
-		List<ZoneId> availableTimeZones = ZoneId.getAvailableZoneIds().stream().map(ZoneId::of)
-				.collect(Collectors.toList());
-		for (String timeZone : timeZones) {
-			for (ZoneId zone : availableTimeZones) {
-				if (matchesTZCodeOrName(timeZone, zone)) {
-					StringBuilder sb = new StringBuilder();
-					LOGGER.fine("Time Zone Processing::" + timeZone);
-					sb.append(timeZone);
-					sb.append(" ");
-					sb.append(COLON);
-					sb.append(" ");
-					sb.append(parserResult.getToDateTime().withZoneSameInstant(zone)
-							.format(DateTimeFormatter.ofPattern(format)));
-					result.add(sb.toString());
-				}
-			}
+		if (offset.charAt(0) == '-') {
+			totalMinutes = -totalMinutes;
 		}
-		return result;
-	}
-
-	private static boolean matchesTZCodeOrName(String tzString, ZoneId zone) {
-		return tzString.equals(zone.getDisplayName(TextStyle.SHORT, Locale.getDefault()))
-				|| tzString.equals(zone.getDisplayName(TextStyle.FULL, Locale.getDefault()))
-				|| tzString.equals(zone.getId());
+		if (totalMinutes % OFFSET_STEP_MINUTES == 0) {
+			return QUARTER_HOUR_OFFSETS[(totalMinutes + MAX_OFFSET_MINUTES) / OFFSET_STEP_MINUTES];
+		}
+		return ZoneId.ofOffset("UTC", ZoneOffset.ofTotalSeconds(totalMinutes * 60));
 	}
 
-	private static boolean matchesCountryCodeOrName(String countryString, CountryRecord country) {
-		return countryString.equals(country.getAlpha2Code()) || countryString.equals(country.getAlpha3Code())
-				|| countryString.equals(country.getCountryName());
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
 	}
 
 }
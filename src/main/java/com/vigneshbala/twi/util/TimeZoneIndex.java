@@ -0,0 +1,115 @@
+package com.vigneshbala.twi.util;
+
+import java.time.ZoneId;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable lookup of time zones by alias. Every available zone is registered
+ * under its short display name (e.g. SGT), its full display name (e.g.
+ * Singapore Standard Time) and its id (e.g. Asia/Singapore), so resolving an
+ * alias is a single hash lookup instead of a scan over all zones. The zones of
+ * an alias are sorted by id, so their order does not depend on the iteration
+ * order of {@link ZoneId#getAvailableZoneIds()}.
+ *
+ * Display names depend on the locale, hence one index is built (once, on first
+ * use) per locale. Building it formats the names of every zone, so callers
+ * that may be given a plain region id should go through
+ * {@link #resolve(Locale, String)}, which answers those without the index.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class TimeZoneIndex {
+
+	private static final ConcurrentMap<Locale, TimeZoneIndex> INDEXES = new ConcurrentHashMap<>();
+
+	private final Map<String, List<ZoneId>> zonesByAlias;
+
+	private TimeZoneIndex(Locale locale) {
+		Map<String, List<ZoneId>> aliases = new HashMap<>();
+		for (String zoneId : ZoneId.getAvailableZoneIds()) {
+			ZoneId zone = ZoneId.of(zoneId);
+			String shortName = zone.getDisplayName(TextStyle.SHORT, locale);
+			String fullName = zone.getDisplayName(TextStyle.FULL, locale);
+			register(aliases, shortName, zone);
+			if (!fullName.equals(shortName)) {
+				register(aliases, fullName, zone);
+			}
+			if (!zoneId.equals(shortName) && !zoneId.equals(fullName)) {
+				register(aliases, zoneId, zone);
+			}
+		}
+		for (Entry<String, List<ZoneId>> entry : aliases.entrySet()) {
+			entry.getValue().sort(Comparator.comparing(ZoneId::getId));
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		this.zonesByAlias = Collections.unmodifiableMap(aliases);
+	}
+
+	private static void register(Map<String, List<ZoneId>> aliases, String alias, ZoneId zone) {
+		List<ZoneId> zones = aliases.get(alias);
+		if (zones == null) {
+			zones = new ArrayList<>(1);
+			aliases.put(alias, zones);
+		}
+		zones.add(zone);
+	}
+
+	/**
+	 * @param locale locale used for the zone display names
+	 * @return the shared index for the locale
+	 */
+	public static TimeZoneIndex getInstance(Locale locale) {
+		return INDEXES.computeIfAbsent(locale, TimeZoneIndex::new);
+	}
+
+	/**
+	 * Same as {@code getInstance(locale).find(alias)}, except that a region id
+	 * (e.g. Asia/Singapore) is resolved without building the index. No display
+	 * name is the id of another zone, so the answer is the same.
+	 *
+	 * @param locale locale used for the zone display names
+	 * @param alias  short code, full name or id of the time zone
+	 * @return matching zones, empty if none
+	 */
+	public static List<ZoneId> resolve(Locale locale, String alias) {
+		if (alias.indexOf('/') >= 0 && RegionIds.IDS.contains(alias)) {
+			return Collections.singletonList(ZoneId.of(alias));
+		}
+		return getInstance(locale).find(alias);
+	}
+
+	/**
+	 * Find the zones registered under an alias. Matching is exact (case
+	 * sensitive), same as comparing against the display names and id.
+	 *
+	 * @param alias short code, full name or id of the time zone
+	 * @return matching zones, empty if none
+	 */
+	public List<ZoneId> find(String alias) {
+		List<ZoneId> zones = zonesByAlias.get(alias);
+		return zones == null ? Collections.<ZoneId>emptyList() : zones;
+	}
+
+	public boolean contains(String alias) {
+		return zonesByAlias.containsKey(alias);
+	}
+
+	// initialised on first use of a region id
+	private static final class RegionIds {
+		private static final Set<String> IDS = Collections.unmodifiableSet(ZoneId.getAvailableZoneIds());
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.vigneshbala.twi.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The offsets of a time zone over a range of years, precomputed from its
+ * {@link ZoneRules}: the instants of the transitions in epoch seconds, sorted,
+ * and the offset in effect between them. The offset of an instant is then a
+ * binary search over primitives, with the same answer as
+ * {@link ZoneRules#getOffset(Instant)}: the offset after a transition applies
+ * from the instant of the transition on, so an instant in a daylight saving
+ * overlap gets the offset it actually had. Instants outside the range are
+ * answered by the rules.
+ *
+ * The range defaults to the years 1900 to 2100 and can be changed with
+ * -Dtwi.zoneTransitions.fromYear and -Dtwi.zoneTransitions.toYear. A table is
+ * built on first use and shared, it is immutable once built.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public final class ZoneTransitions {
+
+	public static final String FROM_YEAR_PROPERTY = "twi.zoneTransitions.fromYear";
+	public static final String TO_YEAR_PROPERTY = "twi.zoneTransitions.toYear";
+
+	private static final int FROM_YEAR = Integer.getInteger(FROM_YEAR_PROPERTY, 1900);
+	private static final int TO_YEAR = Integer.getInteger(TO_YEAR_PROPERTY, 2100);
+	private static final long SECONDS_PER_DAY = 86400;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final ConcurrentMap<ZoneId, ZoneTransitions> TRANSITIONS = new ConcurrentHashMap<>();
+
+	private final ZoneId zone;
+	private final ZoneRules rules;
+	private final boolean fixedOffset;
+	// instants covered by the table, from start (inclusive) to end (exclusive)
+	private final long start;
+	private final long end;
+	// ascending instants of the transitions within the range
+	private final long[] transitions;
+	// offsets[i] is in effect up to transitions[i], the last one after the
+	// last transition
+	private final int[] offsets;
+
+	ZoneTransitions(ZoneId zone, int fromYear, int toYear) {
+		this.zone = zone;
+		this.rules = zone.getRules();
+		this.fixedOffset = rules.isFixedOffset();
+		this.start = startOfYear(fromYear);
+		this.end = startOfYear(toYear + 1);
+
+		long[] instants = new long[INITIAL_CAPACITY];
+		int[] offsetSeconds = new int[INITIAL_CAPACITY + 1];
+		offsetSeconds[0] = rules.getOffset(Instant.ofEpochSecond(start)).getTotalSeconds();
+		int count = 0;
+		ZoneOffsetTransition transition = fixedOffset ? null : rules.nextTransition(Instant.ofEpochSecond(start));
+		while (transition != null && transition.toEpochSecond() < end) {
+			if (count == instants.length) {
+				instants = Arrays.copyOf(instants, count * 2);
+				offsetSeconds = Arrays.copyOf(offsetSeconds, count * 2 + 1);
+			}
+			instants[count] = transition.toEpochSecond();
+			offsetSeconds[++count] = transition.getOffsetAfter().getTotalSeconds();
+			transition = rules.nextTransition(transition.getInstant());
+		}
+		this.transitions = Arrays.copyOf(instants, count);
+		this.offsets = Arrays.copyOf(offsetSeconds, count + 1);
+	}
+
+	/**
+	 * @param zone time zone or offset
+	 * @return the shared table of the zone, over the configured years
+	 */
+	public static ZoneTransitions of(ZoneId zone) {
+		ZoneTransitions transitions = TRANSITIONS.get(zone);
+		if (transitions == null) {
+			transitions = TRANSITIONS.computeIfAbsent(zone, z -> new ZoneTransitions(z, FROM_YEAR, TO_YEAR));
+		}
+		return transitions;
+	}
+
+	/**
+	 * @return seconds since the epoch of 1st January of the year, UTC
+	 */
+	private static long startOfYear(int year) {
+		return LocalDate.of(year, 1, 1).toEpochDay() * SECONDS_PER_DAY;
+	}
+
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	/**
+	 * @param epochSecond instant in seconds since the epoch
+	 * @return offset of the zone at the instant, in seconds
+	 */
+	public int getOffsetSeconds(long epochSecond) {
+		if (fixedOffset) {
+			return offsets[0];
+		}
+		if (epochSecond < start || epochSecond >= end) {
+			return rules.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+		}
+		int index = Arrays.binarySearch(transitions, epochSecond);
+		// number of transitions at or before the instant
+		return offsets[index >= 0 ? index + 1 : -index - 1];
+	}
+
+	/**
+	 * @see #getOffsetSeconds(long)
+	 */
+	public ZoneOffset getOffset(long epochSecond) {
+		return ZoneOffset.ofTotalSeconds(getOffsetSeconds(epochSecond));
+	}
+
+	/**
+	 * @return number of transitions in the table
+	 */
+	public int size() {
+		return transitions.length;
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.vigneshbala.twi.util;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.chrono.IsoChronology;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalField;
+import java.time.temporal.TemporalQueries;
+import java.time.temporal.TemporalQuery;
+import java.time.temporal.ValueRange;
+
+/**
+ * An instant in a zone, the fields of which are worked out from the epoch
+ * seconds and the offset found in the {@link ZoneTransitions} of the zone,
+ * with long arithmetic. It answers a formatter like the ZonedDateTime of
+ * {@code withZoneSameInstant} would, without creating one per target.
+ *
+ * It is reused for every target of a conversion by {@link #set}, so it is not
+ * thread safe and must not be kept after formatting.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+final class ZonedFields implements TemporalAccessor {
+
+	private static final long SECONDS_PER_DAY = 86400;
+	private static final long NANOS_PER_SECOND = 1000_000_000L;
+	// days from 0000-03-01 to 1970-01-01
+	private static final long DAYS_0000_TO_1970 = 719468;
+	private static final long DAYS_PER_CYCLE = 146097;
+	// days of the year before the 1st of every month, in a non leap year
+	private static final int[] DAYS_BEFORE_MONTH = { 0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334 };
+
+	private ZoneTransitions transitions;
+	private long epochSecond;
+	private int nano;
+	private int offsetSeconds;
+	private long epochDay;
+	private int secondOfDay;
+	private int year;
+	private int month;
+	private int day;
+
+	/**
+	 * @param transitions transitions of the zone to convert to
+	 * @param epochSecond instant in seconds since the epoch
+	 * @param nano        nanoseconds of the second
+	 * @return this, holding the instant in the zone
+	 */
+	ZonedFields set(ZoneTransitions transitions, long epochSecond, int nano) {
+		this.transitions = transitions;
+		this.epochSecond = epochSecond;
+		this.nano = nano;
+		this.offsetSeconds = transitions.getOffsetSeconds(epochSecond);
+		long localSecond = epochSecond + offsetSeconds;
+		this.epochDay = Math.floorDiv(localSecond, SECONDS_PER_DAY);
+		this.secondOfDay = (int) Math.floorMod(localSecond, SECONDS_PER_DAY);
+
+		// civil date of the epoch day, counted in 400 year cycles from 0000-03-01
+		long days = epochDay + DAYS_0000_TO_1970;
+		long cycle = Math.floorDiv(days, DAYS_PER_CYCLE);
+		int dayOfCycle = (int) (days - cycle * DAYS_PER_CYCLE);
+		int yearOfCycle = (dayOfCycle - dayOfCycle / 1460 + dayOfCycle / 36524 - dayOfCycle / 146096) / 365;
+		int dayOfYear = dayOfCycle - (365 * yearOfCycle + yearOfCycle / 4 - yearOfCycle / 100);
+		int shiftedMonth = (5 * dayOfYear + 2) / 153;
+		this.day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		this.month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+		this.year = (int) (yearOfCycle + cycle * 400 + (month <= 2 ? 1 : 0));
+		return this;
+	}
+
+	private int getDayOfYear() {
+		return DAYS_BEFORE_MONTH[month - 1] + day + (month > 2 && IsoChronology.INSTANCE.isLeapYear(year) ? 1 : 0);
+	}
+
+	@Override
+	public boolean isSupported(TemporalField field) {
+		if (field instanceof ChronoField) {
+			return true;
+		}
+		return field != null && field.isSupportedBy(this);
+	}
+
+	@Override
+	public ValueRange range(TemporalField field) {
+		if (field == ChronoField.DAY_OF_MONTH || field == ChronoField.DAY_OF_YEAR
+				|| field == ChronoField.ALIGNED_WEEK_OF_MONTH || field == ChronoField.YEAR_OF_ERA) {
+			return LocalDate.ofEpochDay(epochDay).range(field);
+		}
+		return TemporalAccessor.super.range(field);
+	}
+
+	@Override
+	public long getLong(TemporalField field) {
+		if (!(field instanceof ChronoField)) {
+			return field.getFrom(this);
+		}
+		switch ((ChronoField) field) {
+		case NANO_OF_SECOND:
+			return nano;
+		case NANO_OF_DAY:
+			return secondOfDay * NANOS_PER_SECOND + nano;
+		case MICRO_OF_SECOND:
+			return nano / 1000;
+		case MICRO_OF_DAY:
+			return secondOfDay * 1000_000L + nano / 1000;
+		case MILLI_OF_SECOND:
+			return nano / 1000_000;
+		case MILLI_OF_DAY:
+			return secondOfDay * 1000L + nano / 1000_000;
+		case SECOND_OF_MINUTE:
+			return secondOfDay % 60;
+		case SECOND_OF_DAY:
+			return secondOfDay;
+		case MINUTE_OF_HOUR:
+			return secondOfDay / 60 % 60;
+		case MINUTE_OF_DAY:
+			return secondOfDay / 60;
+		case HOUR_OF_AMPM:
+			return secondOfDay / 3600 % 12;
+		case CLOCK_HOUR_OF_AMPM:
+			return secondOfDay / 3600 % 12 == 0 ? 12 : secondOfDay / 3600 % 12;
+		case HOUR_OF_DAY:
+			return secondOfDay / 3600;
+		case CLOCK_HOUR_OF_DAY:
+			return secondOfDay / 3600 == 0 ? 24 : secondOfDay / 3600;
+		case AMPM_OF_DAY:
+			return secondOfDay / 3600 / 12;
+		case DAY_OF_WEEK:
+			return Math.floorMod(epochDay + 3, 7) + 1;
+		case ALIGNED_DAY_OF_WEEK_IN_MONTH:
+			return (day - 1) % 7 + 1;
+		case ALIGNED_DAY_OF_WEEK_IN_YEAR:
+			return (getDayOfYear() - 1) % 7 + 1;
+		case DAY_OF_MONTH:
+			return day;
+		case DAY_OF_YEAR:
+			return getDayOfYear();
+		case EPOCH_DAY:
+			return epochDay;
+		case ALIGNED_WEEK_OF_MONTH:
+			return (day - 1) / 7 + 1;
+		case ALIGNED_WEEK_OF_YEAR:
+			return (getDayOfYear() - 1) / 7 + 1;
+		case MONTH_OF_YEAR:
+			return month;
+		case PROLEPTIC_MONTH:
+			return year * 12L + month - 1;
+		case YEAR_OF_ERA:
+			return year >= 1 ? year : 1 - year;
+		case YEAR:
+			return year;
+		case ERA:
+			return year >= 1 ? 1 : 0;
+		case INSTANT_SECONDS:
+			return epochSecond;
+		case OFFSET_SECONDS:
+			return offsetSeconds;
+		default:
+			return field.getFrom(this);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <R> R query(TemporalQuery<R> query) {
+		if (query == TemporalQueries.zoneId() || query == TemporalQueries.zone()) {
+			return (R) transitions.getZone();
+		} else if (query == TemporalQueries.offset()) {
+			return (R) ZoneOffset.ofTotalSeconds(offsetSeconds);
+		} else if (query == TemporalQueries.chronology()) {
+			return (R) IsoChronology.INSTANCE;
+		} else if (query == TemporalQueries.precision()) {
+			return (R) ChronoUnit.NANOS;
+		} else if (query == TemporalQueries.localDate()) {
+			return (R) LocalDate.ofEpochDay(epochDay);
+		} else if (query == TemporalQueries.localTime()) {
+			return (R) LocalTime.ofNanoOfDay(secondOfDay * NANOS_PER_SECOND + nano);
+		}
+		return query.queryFrom(this);
+	}
+
+}
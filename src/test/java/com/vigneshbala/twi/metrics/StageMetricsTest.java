@@ -0,0 +1,46 @@
+package com.vigneshbala.twi.metrics;
+
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class StageMetricsTest {
+
+	@Test
+	public void testCountsAndErrors() {
+		StageMetrics metrics = new StageMetrics(Stage.TIME_ZONE);
+		metrics.record(2000);
+		metrics.record(4000);
+		metrics.fail(new Exception("String contain more time zone.. only one is supported.."));
+		metrics.fail(new Exception("String contain more time zone.. only one is supported.."));
+		metrics.fail(new NullPointerException());
+
+		Assert.assertEquals(metrics.getCount(), 2);
+		Assert.assertEquals(metrics.getErrorCount(), 3);
+		Assert.assertEquals(metrics.getMeanMicros(), 3.0);
+		Assert.assertEquals(metrics.getMaxMicros(), 4.0);
+		Map<String, Long> errors = metrics.getErrorsByMessage();
+		Assert.assertEquals(errors.get("String contain more time zone.. only one is supported.."), Long.valueOf(2));
+		Assert.assertEquals(errors.get(NullPointerException.class.getName()), Long.valueOf(1));
+		Assert.assertTrue(metrics.toString().startsWith("TIME_ZONE"));
+	}
+
+	@Test
+	public void testErrorMessagesAreBounded() {
+		StageMetrics metrics = new StageMetrics(Stage.PARSE);
+		for (int i = 0; i < StageMetrics.MAX_ERROR_MESSAGES * 2; i++) {
+			metrics.fail(new Exception("Invalid input " + i));
+		}
+		Map<String, Long> errors = metrics.getErrorsByMessage();
+		Assert.assertEquals(errors.size(), StageMetrics.MAX_ERROR_MESSAGES + 1);
+		Assert.assertEquals(errors.get(StageMetrics.OTHER_ERRORS), Long.valueOf(StageMetrics.MAX_ERROR_MESSAGES));
+		Assert.assertFalse(Metrics.ENABLED);
+	}
+
+}
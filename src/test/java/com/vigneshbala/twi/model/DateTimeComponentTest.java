@@ -0,0 +1,172 @@
+package com.vigneshbala.twi.model;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Compares the resolved date time with the ZonedDateTime arithmetic it
+ * replaces, including base times next to daylight saving transitions.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DateTimeComponentTest {
+
+	private static final String[] ZONES = { "Asia/Kolkata", "America/New_York", "Europe/London",
+			"Australia/Lord_Howe", "Pacific/Apia", "America/Santiago", "UTC" };
+
+	@Test
+	public void testMatchesZonedDateTimeArithmetic() {
+		Random random = new Random(17);
+		TimeZone defaultZone = TimeZone.getDefault();
+		try {
+			for (String systemZone : ZONES) {
+				TimeZone.setDefault(TimeZone.getTimeZone(systemZone));
+				for (int i = 0; i < 4000; i++) {
+					ZoneId zone = ZoneId.of(ZONES[random.nextInt(ZONES.length)]);
+					ZonedDateTime baseTime = randomBaseTime(random, zone);
+					int[] values = new int[10];
+					for (int field = 0; field < values.length; field++) {
+						values[field] = random.nextInt(3) == 0 ? random.nextInt(61) - 30 : 0;
+					}
+					assertSame(baseTime, values);
+				}
+			}
+		} finally {
+			TimeZone.setDefault(defaultZone);
+		}
+	}
+
+	@Test
+	public void testPastDateKeepsOffsetInOverlap() {
+		TimeZone defaultZone = TimeZone.getDefault();
+		try {
+			TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+			ZonedDateTime baseTime = ZonedDateTime.of(2006, 12, 1, 0, 0, 0, 0, ZoneId.of("America/New_York"));
+			DateTimeComponent component = new DateTimeComponent(baseTime, false);
+			component.setToMonth(11);
+			component.setToDate(4);
+			component.setToHour(1);
+			component.setToMin(30);
+			// 4th November 2006 is in standard time, the offset is kept for the
+			// ambiguous 1:30 AM a year later
+			Assert.assertEquals(component.getDateTime().toString(), "2007-11-04T01:30-05:00[America/New_York]");
+		} finally {
+			TimeZone.setDefault(defaultZone);
+		}
+	}
+
+	@Test
+	public void testEpochMilli() {
+		DateTimeComponent component = new DateTimeComponent(ZonedDateTime.now(), false);
+		component.setHourDelta(2);
+		Assert.assertEquals(component.getEpochMilli(), component.getDateTime().toInstant().toEpochMilli());
+	}
+
+	private static ZonedDateTime randomBaseTime(Random random, ZoneId zone) {
+		long epochSecond = -631152000L + (long) (random.nextDouble() * 3786912000L);
+		ZonedDateTime baseTime = Instant.ofEpochSecond(epochSecond).atZone(zone);
+		if (random.nextBoolean() && zone.getRules().nextTransition(baseTime.toInstant()) != null) {
+			// a few hours around the next transition
+			Instant transition = zone.getRules().nextTransition(baseTime.toInstant()).getInstant();
+			baseTime = transition.plusSeconds(random.nextInt(8 * 3600) - 4 * 3600).atZone(zone);
+		}
+		return baseTime;
+	}
+
+	private static void assertSame(ZonedDateTime baseTime, int[] values) {
+		DateTimeComponent component = new DateTimeComponent(baseTime, false);
+		apply(component, values);
+		String actual;
+		try {
+			ZonedDateTime dateTime = component.getDateTime();
+			Assert.assertEquals(component.getEpochMilli(), dateTime.toInstant().toEpochMilli());
+			actual = dateTime.toString();
+		} catch (DateTimeException e) {
+			actual = e.getMessage();
+		}
+		DateTimeComponent expected = new DateTimeComponent(baseTime, false);
+		apply(expected, values);
+		String reference;
+		try {
+			reference = getDateTime(expected, baseTime).toString();
+		} catch (DateTimeException e) {
+			reference = e.getMessage();
+		}
+		Assert.assertEquals(actual, reference, baseTime + " " + Arrays.toString(values));
+	}
+
+	private static void apply(DateTimeComponent component, int[] values) {
+		if (values[0] != 0) {
+			component.setDayDelta(values[0]);
+		}
+		if (values[1] != 0) {
+			component.setMonthDelta(values[1]);
+		}
+		if (values[2] != 0) {
+			component.setYearDelta(values[2]);
+		}
+		if (values[3] != 0) {
+			component.setHourDelta(values[3] * 7);
+		}
+		if (values[4] != 0) {
+			component.setMinuteDelta(values[4] * 97);
+		}
+		if (values[5] != 0) {
+			component.setToHour(Math.abs(values[5]) % 24);
+		}
+		if (values[6] != 0) {
+			component.setToMin(Math.abs(values[6]) * 2 % 60);
+		}
+		if (values[7] != 0) {
+			component.setToDate(Math.abs(values[7]) + 1);
+		}
+		if (values[8] != 0) {
+			component.setToMonth(Math.abs(values[8]) % 12 + 1);
+		}
+		if (values[9] != 0) {
+			component.setToYear(2000 + values[9]);
+		}
+	}
+
+	/**
+	 * The original resolution, one ZonedDateTime per delta.
+	 */
+	private static ZonedDateTime getDateTime(DateTimeComponent c, ZonedDateTime baseTime) {
+		if (c.dayDelta != 0) {
+			c.toDate = baseTime.plusDays(c.dayDelta).getDayOfMonth();
+		}
+		if (c.monthDelta != 0) {
+			c.toMonth = baseTime.plusMonths(c.monthDelta).getMonthValue();
+		}
+		if (c.yearDelta != 0) {
+			c.toYear = baseTime.plusYears(c.yearDelta).getYear();
+		}
+		if (c.hourDelta != 0) {
+			c.toHour = baseTime.plusHours(c.hourDelta).getHour();
+		}
+		if (c.minuteDelta != 0) {
+			c.toMin = baseTime.plusMinutes(c.minuteDelta).getMinute();
+		}
+		ZonedDateTime result = ZonedDateTime.of(LocalDateTime.of(c.toYear, c.toMonth, c.toDate, c.toHour, c.toMin),
+				ZoneId.systemDefault());
+		if (c.adjustForPastDate && result.getMonthValue() < baseTime.getMonthValue()) {
+			result = result.plusYears(1);
+			if (result.getDayOfMonth() < baseTime.getDayOfMonth()) {
+				result = result.plusMonths(1);
+			}
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.vigneshbala.twi.nlp;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.vigneshbala.twi.model.DateTimeSpan;
+
+/**
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DateTimeExtractorTest {
+
+	private static final String FORMAT = "dd-MM-yyyy hh:mm:ss a";
+
+	private final DateTimeExtractor extractor = new DateTimeExtractor(new DateTimeNLPParser(), FORMAT);
+	private final ZonedDateTime baseTime = LocalDateTime.of(2024, 7, 17, 10, 0).atZone(ZoneId.of("Asia/Kolkata"));
+
+	@Test
+	public void testEveryExpression() {
+		String text = "call at 3pm SGT, or else tuesday 10am IST";
+		List<DateTimeSpan> spans = extractor.extract(text, baseTime);
+		Assert.assertEquals(spans.size(), 2);
+
+		Assert.assertEquals(spans.get(0).getText(), "3pm SGT");
+		Assert.assertEquals(text.substring((int) spans.get(0).getStart(), (int) spans.get(0).getEnd()), "3pm SGT");
+		Assert.assertEquals(spans.get(0).getDateTime(),
+				LocalDateTime.of(2024, 7, 17, 15, 0).atZone(ZoneId.of("Asia/Singapore")));
+
+		Assert.assertEquals(spans.get(1).getText(), "tuesday 10am IST");
+		Assert.assertEquals(spans.get(1).getStart(), text.indexOf("tuesday"));
+		Assert.assertEquals(spans.get(1).getDateTime(),
+				LocalDateTime.of(2024, 7, 23, 10, 0).atZone(ZoneId.of("Asia/Kolkata")));
+		Assert.assertTrue(spans.get(1).getResult().isTimezonePresent());
+	}
+
+	@Test
+	public void testExpressionBoundaries() {
+		assertTexts("Meeting on 5th May, 2024 at 3:30pm CET, agenda attached", "5th May, 2024 at 3:30pm CET");
+		assertTexts("the day after tomorrow at 9am", "day after tomorrow at 9am");
+		assertTexts("either 3pm 4pm", "3pm", "4pm");
+		assertTexts("done by 3pm. Tuesday works too", "3pm", "Tuesday");
+		assertTexts("+2h from here, next friday at 10:30 Asia/Tokyo", "+2h", "next friday at 10:30 Asia/Tokyo");
+		// plain words and bare numbers are not date times
+		assertTexts("you may call me on the 5th, I have 3 apples and the sun is out");
+		// rejected by the grammars
+		assertTexts("31st apr 3pm");
+	}
+
+	@Test
+	public void testStreamMatchesText() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; text.length() < 3 * DateTimeExtractor.WINDOW_SIZE; i++) {
+			text.append("line ").append(i).append(": sync at ").append(i % 12 + 1).append("pm SGT or tomorrow\r\n");
+		}
+		List<DateTimeSpan> expected = extractor.extract(text.toString(), baseTime);
+		List<DateTimeSpan> actual = new ArrayList<>();
+		long found = extractor.extract(new StringReader(text.toString()), baseTime, actual::add);
+
+		Assert.assertEquals(found, expected.size());
+		Assert.assertEquals(actual.size(), expected.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(actual.get(i).getStart(), expected.get(i).getStart());
+			Assert.assertEquals(actual.get(i).getEnd(), expected.get(i).getEnd());
+			Assert.assertEquals(actual.get(i).getDateTime(), expected.get(i).getDateTime());
+		}
+	}
+
+	private void assertTexts(String text, String... expected) {
+		List<String> actual = new ArrayList<>();
+		for (DateTimeSpan span : extractor.extract(text, baseTime)) {
+			actual.add(span.getText());
+		}
+		Assert.assertEquals(actual.toArray(), expected, text);
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.vigneshbala.twi.nlp;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.vigneshbala.twi.util.ReferenceDataUtil;
+
+/**
+ * Runs one shared parser instance from many threads and checks that every
+ * result matches the single threaded result for the same input.
+ * 
+ * (c) 2024 Vignesh Balasubramanian
+ * 
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DateTimeNLPParserConcurrencyTest {
+
+	private static final String FORMAT = "dd-MM-yyyy hh:mm:ss a";
+	private static final int THREADS = 8;
+	private static final int ITERATIONS = 500;
+
+	private static final String[] INPUTS = { "Tuesday", "Thursday", "Today", "Tomorrow", "yesterday",
+			"day before yesterday", "day after tomorrow", "last Monday", "this Monday", "coming Monday",
+			"past Monday", "this past Monday", "August", "January", "July", "July 19th", "19th July", "August 15th",
+			"15th August", "September", "8 PM", "5:30 AM", "5 Hours", "21 Hours", "23rd July 8 PM",
+			"23rd July 7:30 AM", "3rd July 3:30 PM", "Thursday 8 AM", "15th August 7:30 PM", "2025",
+			"August 15th 2025", "Aug 15th 2026 3:30 PM", "+2h", "+2.5h", "+2hours", "-10d", "last next monday",
+			"Monday Tuesday", "nothing here" };
+
+	private ZonedDateTime baseTime = null;
+
+	@BeforeClass
+	public void loadReferenceData() throws IOException {
+		baseTime = LocalDate.of(2024, 7, 17).atStartOfDay(ZoneId.systemDefault());
+		ReferenceDataUtil.loadCountryData();
+	}
+
+	@Test
+	public void testSharedParserMatchesSingleThreadedResults() throws Exception {
+		final DateTimeNLPParser parser = new DateTimeNLPParser();
+		final List<String> expected = new ArrayList<>();
+		for (String input : INPUTS) {
+			expected.add(parseQuietly(parser, input));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> futures = new ArrayList<>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				final int offset = t;
+				futures.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						start.await();
+						int mismatches = 0;
+						for (int i = 0; i < ITERATIONS; i++) {
+							// each thread walks the inputs from a different position
+							int index = (i + offset) % INPUTS.length;
+							if (!expected.get(index).equals(parseQuietly(parser, INPUTS[index]))) {
+								mismatches++;
+							}
+						}
+						return mismatches;
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<Integer> future : futures) {
+				Assert.assertEquals(future.get(60, TimeUnit.SECONDS).intValue(), 0);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private String parseQuietly(DateTimeNLPParser parser, String input) {
+		try {
+			return parser.parse(input, baseTime, FORMAT).getPrettyPrintedResult();
+		} catch (Exception e) {
+			return "error: " + e.getMessage();
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.vigneshbala.twi.nlp;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.vigneshbala.twi.nlp.KeywordTrie.Keyword;
+
+/**
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class KeywordTrieTest {
+
+	private static final String FORMAT = "dd-MM-yyyy hh:mm:ss a";
+
+	@Test
+	public void testLongestMatch() {
+		KeywordTrie trie = new KeywordTrie(Arrays.asList("today", "days from today", "days from now", "day after"));
+		Assert.assertEquals(trie.size(), 4);
+
+		List<DateTimeToken> tokens = DateTimeTokenizer.tokenize("2 days from today");
+		Assert.assertNull(trie.longestMatch(tokens, 0));
+		Keyword keyword = trie.longestMatch(tokens, 1);
+		Assert.assertEquals(keyword.getText(), "days from today");
+		Assert.assertEquals(keyword.getWords(), 3);
+		// ids follow the sorted order of the keywords
+		Assert.assertEquals(keyword.getId(), 2);
+		Assert.assertEquals(trie.longestMatch(tokens, 3).getText(), "today");
+
+		// consumed tokens end the match
+		tokens.get(3).consumed = true;
+		Assert.assertNull(trie.longestMatch(tokens, 1));
+		Assert.assertNull(trie.longestMatch(DateTimeTokenizer.tokenize("days from"), 0));
+	}
+
+	@Test
+	public void testRelativeDayPriority() throws Exception {
+		DateTimeNLPParser parser = new DateTimeNLPParser();
+		ZonedDateTime baseTime = ZonedDateTime.now();
+		Assert.assertEquals(parser.parse("day after tomorrow", baseTime, FORMAT).getToDateTime().toLocalDate(),
+				baseTime.toLocalDate().plusDays(2));
+		Assert.assertEquals(parser.parse("2 days from today", baseTime, FORMAT).getToDateTime().toLocalDate(),
+				baseTime.toLocalDate().plusDays(1));
+		// the first of two keywords of the same length
+		Assert.assertEquals(parser.parse("yesterday today", baseTime, FORMAT).getToDateTime().toLocalDate(),
+				baseTime.toLocalDate().minusDays(1));
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.vigneshbala.twi.nlp;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class ParseCacheTest {
+
+	private static final String FORMAT = "dd-MM-yyyy hh:mm:ss a";
+
+	private final DateTimeNLPParser parser = new DateTimeNLPParser();
+	private final ZonedDateTime baseTime = LocalDateTime.of(2024, 7, 17, 10, 0, 30)
+			.atZone(ZoneId.of("Asia/Singapore"));
+
+	@Test
+	public void testHitsAndBucketing() throws Exception {
+		ParseCache cache = new ParseCache(parser, 16, Duration.ofMinutes(1), ChronoUnit.MINUTES);
+		ZonedDateTime expected = parser.parse("+2h", baseTime.truncatedTo(ChronoUnit.MINUTES), FORMAT)
+				.getToDateTime();
+
+		Assert.assertEquals(cache.parse("+2h", baseTime, FORMAT).getToDateTime(), expected);
+		Assert.assertEquals(cache.parse("  +2h ", baseTime.plusSeconds(15), FORMAT).getToDateTime(), expected);
+		Assert.assertEquals(cache.getHits(), 1);
+		Assert.assertEquals(cache.getMisses(), 1);
+
+		// next minute and another zone are separate entries
+		cache.parse("+2h", baseTime.plusMinutes(1), FORMAT);
+		cache.parse("+2h", baseTime.withZoneSameInstant(ZoneId.of("Europe/London")), FORMAT);
+		Assert.assertEquals(cache.getMisses(), 3);
+		Assert.assertEquals(cache.size(), 3);
+
+		// failures are not cached
+		Assert.assertThrows(Exception.class, () -> cache.parse("nothing here", baseTime, FORMAT));
+		Assert.assertEquals(cache.size(), 3);
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		ParseCache cache = new ParseCache(parser, 2, Duration.ofMinutes(1), null);
+		cache.parse("Tuesday", baseTime, FORMAT);
+		cache.parse("Thursday", baseTime, FORMAT);
+		cache.parse("Tuesday", baseTime, FORMAT);
+		cache.parse("Today", baseTime, FORMAT);
+		Assert.assertEquals(cache.getEvictions(), 1);
+
+		// Thursday was the least recently used
+		cache.parse("Tuesday", baseTime, FORMAT);
+		cache.parse("Thursday", baseTime, FORMAT);
+		Assert.assertEquals(cache.getHits(), 2);
+		Assert.assertEquals(cache.getMisses(), 4);
+	}
+
+	@Test
+	public void testExpiry() throws Exception {
+		ParseCache cache = new ParseCache(parser, 2, Duration.ofNanos(1), null);
+		cache.parse("Tuesday", baseTime, FORMAT);
+		Thread.sleep(1);
+		cache.parse("Tuesday", baseTime, FORMAT);
+		Assert.assertEquals(cache.getHits(), 0);
+		Assert.assertEquals(cache.getExpirations(), 1);
+	}
+
+}
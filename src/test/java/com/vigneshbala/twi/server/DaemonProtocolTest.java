@@ -0,0 +1,28 @@
+package com.vigneshbala.twi.server;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DaemonProtocolTest {
+
+	@Test
+	public void testLocalExecution() {
+		// batch mode with a value attached to the cluster
+		Assert.assertTrue(DaemonProtocol.requiresLocalExecution(new String[] { "-bp2" }));
+		Assert.assertTrue(DaemonProtocol.requiresLocalExecution(new String[] { "-bfdd/MM/yyyy" }));
+		Assert.assertTrue(DaemonProtocol.requiresLocalExecution(new String[] { "-p4", "-b" }));
+		Assert.assertTrue(DaemonProtocol.requiresLocalExecution(new String[] { "--batch" }));
+		// argument files are expanded by picocli in the working directory
+		Assert.assertTrue(DaemonProtocol.requiresLocalExecution(new String[] { "@args.txt" }));
+
+		Assert.assertFalse(DaemonProtocol.requiresLocalExecution(new String[] { "tomorrow", "-fdd-MM-yyyy" }));
+		Assert.assertFalse(DaemonProtocol.requiresLocalExecution(new String[] { "-2h", "-zEurope/Paris" }));
+		Assert.assertFalse(DaemonProtocol.requiresLocalExecution(new String[] { "8 pm", "-o", "+5.5" }));
+	}
+
+}
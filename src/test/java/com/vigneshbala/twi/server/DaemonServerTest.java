@@ -0,0 +1,103 @@
+package com.vigneshbala.twi.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.vigneshbala.twi.cli.TimeConverter;
+
+/**
+ * Forwards commands to a daemon on an ephemeral loopback port.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DaemonServerTest {
+
+	private DaemonServer server = null;
+
+	@BeforeClass
+	public void startDaemon() throws Exception {
+		server = new DaemonServer(0, 2, TimeConverter::newCommandLine);
+		Thread serveThread = new Thread(() -> {
+			try {
+				server.serve();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+		serveThread.setDaemon(true);
+		serveThread.start();
+	}
+
+	@AfterClass
+	public void stopDaemon() throws Exception {
+		server.close();
+	}
+
+	@Test
+	public void testForwardedCommand() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		Integer exitCode = DaemonClient.forward(server.getPort(),
+				new String[] { "17th July 2024 8 PM", "-f", "dd-MM-yyyy HH:mm", "-z", "Asia/Singapore" },
+				new PrintStream(out), new PrintStream(err));
+		Assert.assertEquals(exitCode, Integer.valueOf(0));
+		Assert.assertTrue(new String(out.toByteArray(), StandardCharsets.UTF_8).startsWith("Asia/Singapore : "));
+
+		exitCode = DaemonClient.forward(server.getPort(), new String[0], new PrintStream(out), new PrintStream(err));
+		Assert.assertEquals(exitCode, Integer.valueOf(2));
+		Assert.assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains("Missing required parameter"));
+	}
+
+	@Test
+	public void testBatchRunsLocally() {
+		Assert.assertNull(DaemonClient.forward(server.getPort(), new String[] { "-b" }, System.out, System.err));
+		Assert.assertNull(DaemonClient.forward(server.getPort(), new String[] { "--file=inputs.txt" }, System.out,
+				System.err));
+	}
+
+	@Test
+	public void testForeignListenerRunsLocally() throws Exception {
+		// accepts the connection and answers like some other service, or not at all
+		try (ServerSocket foreign = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			Thread listener = new Thread(() -> {
+				for (int i = 0; i < 2; i++) {
+					try (Socket socket = foreign.accept()) {
+						if (i == 0) {
+							socket.getOutputStream().write("HTTP/1.1 400 Bad Request\r\n\r\n".getBytes("US-ASCII"));
+						}
+						Thread.sleep(2000);
+					} catch (Exception e) {
+						return;
+					}
+				}
+			});
+			listener.setDaemon(true);
+			listener.start();
+			String[] args = { "8 PM", "-z", "UTC" };
+			for (int i = 0; i < 2; i++) {
+				long start = System.nanoTime();
+				Assert.assertNull(DaemonClient.forward(foreign.getLocalPort(), args, System.out, System.err));
+				Assert.assertTrue(System.nanoTime() - start < 1500_000_000L);
+			}
+		}
+	}
+
+	@Test
+	public void testClientOption() {
+		String[] args = { "8 PM", DaemonClient.OPTION, "-z", "UTC" };
+		Assert.assertTrue(DaemonClient.isRequested(args));
+		Assert.assertEquals(DaemonClient.withoutClientOption(args), new String[] { "8 PM", "-z", "UTC" });
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.vigneshbala.twi.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.TimeZone;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Posts single and batched conversions to the HTTP service on an ephemeral
+ * port.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class HttpConversionServerTest {
+
+	private static final String BASE_TIME = "2024-07-17T00:00:00+08:00[Asia/Singapore]";
+
+	private HttpConversionServer server = null;
+	private TimeZone defaultTimeZone = null;
+
+	@BeforeClass
+	public void startService() throws Exception {
+		// inputs without a time zone are read in the default zone
+		defaultTimeZone = TimeZone.getDefault();
+		TimeZone.setDefault(TimeZone.getTimeZone("Asia/Singapore"));
+		server = new HttpConversionServer(new InetSocketAddress("localhost", 0), 2, 4);
+		server.start();
+	}
+
+	@AfterClass
+	public void stopService() {
+		server.close();
+		TimeZone.setDefault(defaultTimeZone);
+	}
+
+	@Test
+	public void testSingleConversion() throws Exception {
+		JSONObject request = new JSONObject().put("input", "July 19th").put("format", "dd-MM-yyyy")
+				.put("dateTime", BASE_TIME).put("timezones", new JSONArray().put("Asia/Singapore"));
+		JSONObject response = new JSONObject(post("/convert", request.toString(), 200));
+		Assert.assertEquals(response.getString("output"), "Asia/Singapore : 19-07-2024");
+	}
+
+	@Test
+	public void testBatchConversion() throws Exception {
+		JSONObject request = new JSONObject().put("inputs", new JSONArray().put("Tomorrow").put("nothing here"))
+				.put("format", "dd-MM-yyyy").put("dateTime", BASE_TIME);
+		JSONArray response = new JSONArray(post("/convert", request.toString(), 200));
+		Assert.assertEquals(response.length(), 2);
+		Assert.assertTrue(response.getJSONObject(0).getString("output").startsWith("18-07-2024"));
+		Assert.assertTrue(response.getJSONObject(1).has("error"));
+
+		post("/convert", "{not json", 400);
+	}
+
+	@Test
+	public void testInvalidOffsetFailsBatch() throws Exception {
+		JSONObject request = new JSONObject().put("inputs", new JSONArray().put("Tomorrow").put("+2h"))
+				.put("offsets", new JSONArray().put("+8h")).put("dateTime", BASE_TIME);
+		JSONObject response = new JSONObject(post("/convert", request.toString(), 400));
+		Assert.assertTrue(response.getString("error").startsWith("Invalid Offset Format"));
+	}
+
+	@Test
+	public void testBusyServerAnswers503() throws Exception {
+		try (HttpConversionServer busy = new HttpConversionServer(new InetSocketAddress("localhost", 0), 1, 1)) {
+			busy.start();
+			// the first request holds the only worker while it waits for its body,
+			// the second one waits in the queue
+			byte[] headers = ("POST /convert HTTP/1.1\r\nHost: localhost\r\nContent-Length: 20\r\n\r\n")
+					.getBytes(StandardCharsets.US_ASCII);
+			try (Socket active = new Socket("localhost", busy.getPort());
+					Socket queued = new Socket("localhost", busy.getPort())) {
+				active.getOutputStream().write(headers);
+				Thread.sleep(200);
+				queued.getOutputStream().write(headers);
+				Thread.sleep(200);
+				HttpURLConnection connection = (HttpURLConnection) new URL(
+						"http://localhost:" + busy.getPort() + "/convert").openConnection();
+				connection.setRequestMethod("POST");
+				connection.setDoOutput(true);
+				try (OutputStream out = connection.getOutputStream()) {
+					out.write("{\"input\": \"Tomorrow\"}".getBytes(StandardCharsets.UTF_8));
+				}
+				Assert.assertEquals(connection.getResponseCode(), 503);
+				Assert.assertEquals(connection.getHeaderField("Retry-After"), "1");
+			}
+		}
+	}
+
+	private String post(String path, String body, int expectedStatus) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path)
+				.openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		Assert.assertEquals(connection.getResponseCode(), expectedStatus);
+		try (InputStream in = expectedStatus < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.vigneshbala.twi.util;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.vigneshbala.twi.model.BatchStatistics;
+import com.vigneshbala.twi.model.ConversionResult;
+import com.vigneshbala.twi.model.DateTimeSpan;
+import com.vigneshbala.twi.nlp.DateTimeExtractor;
+import com.vigneshbala.twi.nlp.DateTimeNLPParser;
+
+/**
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class DocumentScannerTest {
+
+	private final ZonedDateTime baseTime = LocalDateTime.of(2024, 7, 17, 0, 0).atZone(ZoneId.of("Asia/Singapore"));
+
+	@Test
+	public void testChunksMatchWholeText() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			if (i % 97 == 0) {
+				// longer than a chunk, cut inside the line between two byte characters
+				text.append("sync at 9am UTC");
+				for (int j = 0; j < 300; j++) {
+					text.append(" \u00e9");
+				}
+			} else if (i % 5 == 0) {
+				text.append("nothing to see");
+			} else {
+				text.append("R\u00e9union ").append(i).append(": call at ").append(i % 12 + 1)
+						.append("pm SGT, or else tuesday 10:").append(i % 60 / 10).append("0am IST");
+			}
+			text.append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		text.append("no line break at the end, +2h");
+		Path file = Files.createTempFile("twi-scan", ".txt");
+		try {
+			Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+			ConversionPlan plan = ConversionPlan.of("dd-MM-yyyy HH:mm", new String[] { "UTC" }, null, null);
+
+			List<ConversionResult> actual = new ArrayList<>();
+			BatchStatistics statistics;
+			try (DocumentScanner scanner = new DocumentScanner(4, 256, 4096)) {
+				statistics = scanner.scan(file, plan, baseTime, actual::add);
+			}
+
+			DateTimeExtractor extractor = new DateTimeExtractor(new DateTimeNLPParser(), plan.getFormat());
+			String[] lines = text.toString().split("\n");
+			List<String> expected = new ArrayList<>();
+			for (int i = 0; i < lines.length; i++) {
+				for (DateTimeSpan span : extractor.extract(lines[i], baseTime)) {
+					expected.add((i + 1) + " " + span.getText() + " " + plan.apply(span.getDateTime()));
+				}
+			}
+			List<String> rows = new ArrayList<>();
+			for (ConversionResult result : actual) {
+				rows.add(result.getLineNumber() + " " + result.getInput() + " " + result.getOutput());
+			}
+			Assert.assertEquals(rows, expected);
+			Assert.assertEquals(statistics.getLines(), lines.length);
+			Assert.assertEquals(statistics.getFailures(), 0);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.vigneshbala.twi.util;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value * 1000);
+		}
+		Assert.assertEquals(histogram.getCount(), 1000);
+		Assert.assertEquals(histogram.getMaxNanos(), 1000000);
+		Assert.assertEquals(histogram.getMeanNanos(), 500500.0, 0.001);
+		// buckets are at most 12.5% wide
+		assertWithin(histogram.getPercentileNanos(50), 500000);
+		assertWithin(histogram.getPercentileNanos(99), 990000);
+		Assert.assertEquals(histogram.getPercentileNanos(100), 1000000);
+	}
+
+	@Test
+	public void testBucketBounds() {
+		for (long value : new long[] { 0, 1, 7, 8, 9, 15, 16, 1000, 123456789, Long.MAX_VALUE }) {
+			int index = LatencyHistogram.bucketIndex(value);
+			Assert.assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+			Assert.assertTrue(index == 0 || LatencyHistogram.bucketUpperBound(index - 1) < value);
+		}
+	}
+
+	private static void assertWithin(long actual, long expected) {
+		Assert.assertTrue(actual >= expected && actual <= expected * 1.125, actual + " not near " + expected);
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.vigneshbala.twi.util;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.vigneshbala.twi.model.CountryRecord;
+import com.vigneshbala.twi.nlp.DateTimeUnits;
+
+/**
+ * Checks that the snapshot compiled at build time holds the same data as the
+ * JSON sources.
+ *
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class ReferenceDataSnapshotTest {
+
+	@Test
+	public void testSnapshotMatchesJson() throws Exception {
+		Map<String, CountryRecord> json = ReferenceDataUtil.loadFromJson();
+		Map<String, CountryRecord> snapshot = ReferenceDataSnapshot.read();
+		Assert.assertNotNull(snapshot, "snapshot missing or stale");
+		Assert.assertEquals(ReferenceDataSnapshot.readSourceChecksum(), ReferenceDataUtil.getSourceChecksum());
+		Assert.assertEquals(snapshot.keySet(), json.keySet());
+		for (Entry<String, CountryRecord> entry : json.entrySet()) {
+			CountryRecord expected = entry.getValue();
+			CountryRecord actual = snapshot.get(entry.getKey());
+			Assert.assertEquals(actual.getCountryName(), expected.getCountryName());
+			Assert.assertEquals(actual.getAlpha2Code(), expected.getAlpha2Code());
+			Assert.assertEquals(actual.getAlpha3Code(), expected.getAlpha3Code());
+			Assert.assertEquals(actual.getTimeZones(), expected.getTimeZones());
+		}
+	}
+
+	@Test
+	public void testStaleSnapshotIsIgnored() throws Exception {
+		long[] lengths = ReferenceDataUtil.getSourceLengths();
+		lengths[0]++;
+		Assert.assertNull(ReferenceDataSnapshot.read(lengths));
+	}
+
+	@Test
+	public void testKeywordsAreNotReferenceData() {
+		// the parser only loads the zone and country tables for other words
+		TimeZoneIndex zones = TimeZoneIndex.getInstance(Locale.ENGLISH);
+		CountryIndex countries = ReferenceDataUtil.getCountryIndex();
+		for (String keyword : DateTimeUnits.getInstance().getKeywords()) {
+			Assert.assertFalse(zones.contains(keyword), keyword);
+			Assert.assertTrue(countries.findPhrases(keyword).isEmpty(), keyword);
+		}
+		Assert.assertEquals(TimeZoneIndex.resolve(Locale.ENGLISH, "Asia/Singapore"),
+				zones.find("Asia/Singapore"));
+		Assert.assertEquals(zones.find("SGT"), Arrays.asList(ZoneId.of("Asia/Singapore"), ZoneId.of("Singapore")));
+	}
+
+}
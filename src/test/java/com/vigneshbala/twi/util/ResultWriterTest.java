@@ -0,0 +1,61 @@
+package com.vigneshbala.twi.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.vigneshbala.twi.model.ConversionResult;
+import com.vigneshbala.twi.util.ResultWriter.LineFormat;
+
+/**
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class ResultWriterTest {
+
+	private static final String NEW_LINE = System.lineSeparator();
+	private static final String FIRST_INPUT = "2 AM, \"sharp\"";
+
+	private final ZonedDateTime baseTime = LocalDateTime.of(2024, 7, 17, 0, 0).atZone(ZoneId.of("Asia/Singapore"));
+
+	@Test
+	public void testLineFormats() throws Exception {
+		ConversionPlan plan = ConversionPlan.of("dd-MM-yyyy HH:mm", new String[] { "Asia/Kolkata" }, null, null);
+		String first = plan.convert(FIRST_INPUT, baseTime);
+		String third = plan.convert("+2h", baseTime);
+
+		Assert.assertEquals(write(LineFormat.PLAIN, plan), first + NEW_LINE + third + NEW_LINE);
+		Assert.assertEquals(write(LineFormat.CSV, plan),
+				"line,input,output,error" + NEW_LINE + "1,\"2 AM, \"\"sharp\"\"\"," + first + "," + NEW_LINE
+						+ "2,not a date,,String does not contain any dates or time.." + NEW_LINE + "3,+2h," + third
+						+ "," + NEW_LINE);
+		Assert.assertEquals(write(LineFormat.JSON, plan),
+				"{\"line\":1,\"input\":\"2 AM, \\\"sharp\\\"\",\"output\":\"" + first + "\"}" + NEW_LINE
+						+ "{\"line\":2,\"input\":\"not a date\",\"error\":\"String does not contain any dates or time..\"}"
+						+ NEW_LINE + "{\"line\":3,\"input\":\"+2h\",\"output\":\"" + third + "\"}" + NEW_LINE);
+	}
+
+	private String write(LineFormat lineFormat, ConversionPlan plan) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		try (ResultWriter writer = new ResultWriter(Channels.newChannel(out), lineFormat, plan, new PrintStream(err),
+				false)) {
+			Assert.assertTrue(writer.convert(1, FIRST_INPUT, baseTime));
+			Assert.assertFalse(writer.convert(2, "not a date", baseTime));
+			writer.write(new ConversionResult(3, "+2h", plan.convert("+2h", baseTime)));
+		}
+		if (lineFormat == LineFormat.PLAIN) {
+			Assert.assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).startsWith("line 2: not a date"));
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+}
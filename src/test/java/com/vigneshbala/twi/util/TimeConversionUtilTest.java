@@ -1,16 +1,29 @@
 package com.vigneshbala.twi.util;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.testng.Assert;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.vigneshbala.twi.model.BatchStatistics;
+import com.vigneshbala.twi.model.Conversion;
+import com.vigneshbala.twi.model.ConversionResult;
+import com.vigneshbala.twi.model.ConvertedDateTime;
+import com.vigneshbala.twi.model.ConvertedDateTime.Target;
+import com.vigneshbala.twi.model.ParserResult;
+
 /**
  * (c) 2024 Vignesh Balasubramanian
  * 
@@ -21,6 +34,12 @@ public class TimeConversionUtilTest {
 	private static final String DD_MM_YYYY_HH_MM_SS_A = "dd-MM-yyyy hh:mm:ss a";
 	private static final String DD_MM_YYYY = "dd-MM-yyyy";
 
+	// inputs without a time zone are read in the default zone, the expected
+	// results are in India Standard Time
+	private static final ZoneId ZONE = ZoneId.of("Asia/Kolkata");
+
+	private TimeZone defaultTimeZone = null;
+
 	// Test Dates injected as current dates for repeatable tests
 	ZonedDateTime JUL_17_2024 = null;
 
@@ -28,18 +47,25 @@ public class TimeConversionUtilTest {
 
 	@BeforeClass
 	public void loadReferenceData() {
+		defaultTimeZone = TimeZone.getDefault();
+		TimeZone.setDefault(TimeZone.getTimeZone(ZONE));
 		try {
 			DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
-			JUL_17_2024 = LocalDate.parse("17/07/2024 00:00:00", formatter).atStartOfDay(ZoneId.systemDefault());
+			JUL_17_2024 = LocalDate.parse("17/07/2024 00:00:00", formatter).atStartOfDay(ZONE);
 
-			Feb_01_2024 = LocalDate.parse("01/02/2024 00:00:00", formatter).atStartOfDay(ZoneId.systemDefault());
+			Feb_01_2024 = LocalDate.parse("01/02/2024 00:00:00", formatter).atStartOfDay(ZONE);
 			ReferenceDataUtil.loadCountryData();
-		} catch (IOException | URISyntaxException e) {
+		} catch (IOException e) {
 
 			e.printStackTrace();
 		}
 	}
 
+	@AfterClass
+	public void restoreTimeZone() {
+		TimeZone.setDefault(defaultTimeZone);
+	}
+
 	@Test
 	public void testWeekDays() {
 		try {
@@ -234,7 +260,7 @@ public class TimeConversionUtilTest {
 			Assert.assertEquals(
 					TimeConversionUtil.convertDateTime("Tuesday 8 PM", DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024,
 							new String[] { "Asia/Singapore", "Europe/London" }, null, null),
-					"Europe/London : 23-07-2024 03:30:00 PM,Asia/Singapore : 23-07-2024 10:30:00 PM");
+					"Asia/Singapore : 23-07-2024 10:30:00 PM,Europe/London : 23-07-2024 03:30:00 PM");
 
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -242,6 +268,51 @@ public class TimeConversionUtilTest {
 		}
 	}
 
+	@Test
+	private void testCountry() {
+
+		try {
+			Assert.assertEquals(TimeConversionUtil.convertDateTime("Tuesday 8 PM", DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024,
+					null, new String[] { "SG" }, null), "sg:\nAsia/Singapore:23-07-2024 10:30:00 PM\n");
+			Assert.assertEquals(TimeConversionUtil.convertDateTime("Tuesday 8 PM", DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024,
+					null, new String[] { "United Kingdom" }, null), "gb:\nEurope/London:23-07-2024 03:30:00 PM\n");
+			// multi word country names in the input are recognised and not parsed as
+			// date or time
+			Assert.assertEquals(TimeConversionUtil.convertDateTime("Tuesday 8 PM United Kingdom", DD_MM_YYYY_HH_MM_SS_A,
+					JUL_17_2024, null, null, null), "23-07-2024 08:00:00 PM");
+			Assert.assertEquals(TimeConversionUtil.convertDateTime("Tuesday 8 PM Svalbard and Jan Mayen",
+					DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024, null, null, null), "23-07-2024 08:00:00 PM");
+
+		} catch (Exception e) {
+			e.printStackTrace();
+			Assert.fail();
+		}
+	}
+
+	@Test
+	private void testTimeZoneInInput() throws Exception {
+		// read in the zone named in the input, not in the default zone
+		Assert.assertEquals(TimeConversionUtil.convertDateTime("Tuesday 8 PM SGT", DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024,
+				new String[] { "Asia/Singapore" }, null, null), "Asia/Singapore : 23-07-2024 08:00:00 PM");
+		Assert.assertEquals(TimeConversionUtil.convertDateTime("5 pm Asia/Singapore", DD_MM_YYYY_HH_MM_SS_A,
+				JUL_17_2024, new String[] { "Asia/Singapore" }, null, null), "Asia/Singapore : 17-07-2024 05:00:00 PM");
+		// lower case short names are plain words
+		Assert.assertEquals(TimeConversionUtil.convertDateTime("meet at 5 pm", DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024,
+				null, null, null), "17-07-2024 05:00:00 PM");
+	}
+
+	@Test
+	private void testTimeZoneSpecifiers() throws Exception {
+		// words qualifying a time zone are not read as date or time, "day" is
+		// still read as part of "day after tomorrow"
+		Assert.assertEquals(TimeConversionUtil.convertDateTime("5 pm pacific standard time", DD_MM_YYYY_HH_MM_SS_A,
+				JUL_17_2024, null, null, null), "17-07-2024 05:00:00 PM");
+		Assert.assertEquals(TimeConversionUtil.convertDateTime("5 pm pacific day light savings time",
+				DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024, null, null, null), "17-07-2024 05:00:00 PM");
+		Assert.assertEquals(TimeConversionUtil.convertDateTime("5 pm standard time day after tomorrow",
+				DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024, null, null, null), "19-07-2024 05:00:00 PM");
+	}
+
 	@Test
 	private void testTZDaylightSavings() {
 
@@ -302,6 +373,10 @@ public class TimeConversionUtilTest {
 
 			Assert.assertEquals(TimeConversionUtil.convertDateTime("Tuesday 8 PM", DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024,
 					null, null, new String[] { "-8" }), "-8 :23-07-2024 06:30:00 AM");
+			Assert.assertEquals(TimeConversionUtil.convertDateTime("Tuesday 8 PM", DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024,
+					null, null, new String[] { "-8.5" }), "-8.5 :23-07-2024 06:00:00 AM");
+			Assert.assertEquals(TimeConversionUtil.convertDateTime("Tuesday 8 PM", DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024,
+					null, null, new String[] { "+5.75" }), "+5.75 :23-07-2024 08:15:00 PM");
 
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -309,4 +384,146 @@ public class TimeConversionUtilTest {
 		}
 	}
 
+	@Test
+	private void testOffsetFormats() throws Exception {
+		Assert.assertEquals(TimeConversionUtil.getTimeZoneForOffset("+08:30").getId(), "UTC+08:30");
+		Assert.assertEquals(TimeConversionUtil.getTimeZoneForOffset("-08:30").getId(), "UTC-08:30");
+		Assert.assertEquals(TimeConversionUtil.getTimeZoneForOffset("+8.25").getId(), "UTC+08:15");
+		Assert.assertEquals(TimeConversionUtil.getTimeZoneForOffset("+0").getId(), "UTC");
+		Assert.assertEquals(TimeConversionUtil.getTimeZoneForOffset("+5:10").getId(), "UTC+05:10");
+		Assert.assertSame(TimeConversionUtil.getTimeZoneForOffset("+5:30"),
+				TimeConversionUtil.getTimeZoneForOffset("+5.5"));
+		for (String invalid : new String[] { "8", "+", "+8:", "+8:60", "+123", "+18:15", "+8:30:00", "+8h" }) {
+			try {
+				TimeConversionUtil.getTimeZoneForOffset(invalid);
+				Assert.fail(invalid);
+			} catch (Exception e) {
+				Assert.assertTrue(e.getMessage().startsWith("Invalid Offset Format"), invalid);
+			}
+		}
+	}
+
+	@Test
+	private void testBatch() {
+		List<ConversionResult> results = new ArrayList<>();
+		TimeConversionUtil.convertDateTimes(Arrays.asList("Tuesday", "", "not a date", "+2h"), DD_MM_YYYY_HH_MM_SS_A,
+				JUL_17_2024, null, null, null, results::add);
+
+		Assert.assertEquals(results.size(), 3);
+		Assert.assertEquals(results.get(0).getOutput(), "23-07-2024 12:00:00 AM");
+		Assert.assertEquals(results.get(1).getLineNumber(), 3);
+		Assert.assertFalse(results.get(1).isSuccess());
+		Assert.assertEquals(results.get(2).getOutput(), "17-07-2024 02:00:00 AM");
+
+		List<String> streamed = TimeConversionUtil
+				.convertDateTimes(Stream.of("Tuesday", "+2h"), DD_MM_YYYY, JUL_17_2024, null, null, null)
+				.map(ConversionResult::getOutput).collect(Collectors.toList());
+		Assert.assertEquals(streamed, Arrays.asList("23-07-2024", "17-07-2024"));
+	}
+
+	@Test
+	private void testConversionPlan() throws Exception {
+		String[] zones = { "SGT", "Europe/London" };
+		String[] offsets = { "+8", "-5:30" };
+		String[] countries = { "in", "australia" };
+		ConversionPlan plan = ConversionPlan.of(DD_MM_YYYY_HH_MM_SS_A, zones, countries, offsets);
+		for (String input : new String[] { "Tuesday 8 PM", "+2h", "17th July 2024 8 PM" }) {
+			Assert.assertEquals(plan.convert(input, JUL_17_2024), TimeConversionUtil.convertDateTime(input,
+					DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024, zones, countries, offsets));
+		}
+
+		// repeated arguments are printed in argument order unless distinct
+		String[] repeated = { "Asia/Singapore", "Europe/London", "Asia/Singapore" };
+		Assert.assertEquals(ConversionPlan.of(DD_MM_YYYY, repeated, null, new String[] { "+8", "+8" })
+				.convert("Tuesday", JUL_17_2024),
+				"Asia/Singapore : 23-07-2024,Europe/London : 22-07-2024,Asia/Singapore : 23-07-2024"
+						+ "+8 :23-07-2024,+8 :23-07-2024");
+		Assert.assertEquals(ConversionPlan.of(DD_MM_YYYY, repeated, null, new String[] { "+8", "+8" }, true)
+				.convert("Tuesday", JUL_17_2024),
+				"Asia/Singapore : 23-07-2024,Europe/London : 22-07-2024+8 :23-07-2024");
+
+		// errors are reported once, when the plan is built
+		try {
+			ConversionPlan.of(DD_MM_YYYY, null, null, new String[] { "+8h" });
+			Assert.fail();
+		} catch (IllegalArgumentException e) {
+			Assert.assertTrue(e.getMessage().startsWith("Invalid Offset Format"));
+		}
+		Assert.assertThrows(IllegalArgumentException.class, () -> ConversionPlan.of("dd-MM-yyyy {", null, null, null));
+		List<ConversionResult> results = new ArrayList<>();
+		Assert.assertThrows(IllegalArgumentException.class, () -> TimeConversionUtil.convertDateTimes(
+				Arrays.asList("Tuesday", "+2h"), DD_MM_YYYY, JUL_17_2024, null, null, new String[] { "+8h" },
+				results::add));
+		Assert.assertTrue(results.isEmpty());
+	}
+
+	@Test
+	private void testTypedConversion() throws Exception {
+		String[] zones = { "Asia/Singapore" };
+		String[] countries = { "sg" };
+		String[] offsets = { "+8" };
+		Conversion conversion = TimeConversionUtil.convert("Tuesday 8 PM", DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024, zones,
+				countries, offsets);
+		Assert.assertEquals(conversion.getDateTimes().size(), 3);
+		for (ConvertedDateTime dateTime : conversion.getDateTimes()) {
+			Assert.assertEquals(dateTime.getEpochMilli(), conversion.getDateTime().toInstant().toEpochMilli());
+		}
+		Assert.assertEquals(conversion.getDateTimes().get(0).getTarget(), Target.TIME_ZONE);
+		Assert.assertEquals(conversion.getDateTimes().get(0).getZone(), ZoneId.of("Asia/Singapore"));
+		Assert.assertEquals(conversion.getDateTimes().get(1).getLabel(), "+8");
+		Assert.assertEquals(conversion.getDateTimes().get(2).getLabel(), "sg");
+		Assert.assertEquals(conversion.getText(), TimeConversionUtil.convertDateTime("Tuesday 8 PM",
+				DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024, zones, countries, offsets));
+
+		ParserResult parsed = conversion.getParserResult();
+		Assert.assertTrue(parsed.isDatePresent());
+		Assert.assertTrue(parsed.isTimePresent());
+		Assert.assertFalse(parsed.isTimezonePresent());
+		Assert.assertEquals(parsed.getOffsets(), Arrays.asList(offsets));
+
+		parsed = TimeConversionUtil.convert("8 PM", DD_MM_YYYY, JUL_17_2024, null, null, null).getParserResult();
+		Assert.assertFalse(parsed.isDatePresent());
+		Assert.assertTrue(parsed.isTimePresent());
+		parsed = TimeConversionUtil.convert("Tomorrow", DD_MM_YYYY, JUL_17_2024, null, null, null).getParserResult();
+		Assert.assertTrue(parsed.isDatePresent());
+		Assert.assertFalse(parsed.isTimePresent());
+	}
+
+	@Test
+	private void testParallelBatch() throws InterruptedException {
+		List<String> inputs = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			inputs.add(i % 7 == 0 ? "not a date" : (i % 24) + ":" + (i % 60));
+		}
+		List<ConversionResult> expected = new ArrayList<>();
+		TimeConversionUtil.convertDateTimes(inputs, DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024, new String[] { "SGT" }, null,
+				null, expected::add);
+
+		List<ConversionResult> actual = new ArrayList<>();
+		try (ParallelBatchConverter converter = new ParallelBatchConverter(4, 16, true)) {
+			BatchStatistics statistics = converter.convert(inputs.iterator(), DD_MM_YYYY_HH_MM_SS_A, JUL_17_2024,
+					new String[] { "SGT" }, null, null, actual::add);
+			Assert.assertEquals(statistics.getLines(), inputs.size());
+			Assert.assertEquals(statistics.getFailures(), 72);
+		}
+		Assert.assertEquals(actual.size(), expected.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(actual.get(i).getLineNumber(), expected.get(i).getLineNumber());
+			Assert.assertEquals(actual.get(i).getOutput(), expected.get(i).getOutput());
+		}
+	}
+
+	@Test
+	private void testFormatterCache() {
+		long misses = FormatterCache.getMisses();
+		Assert.assertSame(FormatterCache.get("dd MMM yyyy"), FormatterCache.get("dd MMM yyyy"));
+		Assert.assertEquals(FormatterCache.getMisses(), misses + 1);
+
+		List<ConversionResult> results = new ArrayList<>();
+		Assert.assertThrows(IllegalArgumentException.class, () -> TimeConversionUtil
+				.convertDateTimes(Arrays.asList("Tuesday", "+2h"), "dd-MM-yyyy {", JUL_17_2024, null, null, null,
+						results::add));
+		Assert.assertTrue(results.isEmpty());
+	}
+
 }
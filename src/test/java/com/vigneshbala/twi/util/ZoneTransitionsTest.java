@@ -0,0 +1,109 @@
+package com.vigneshbala.twi.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * (c) 2024 Vignesh Balasubramanian
+ *
+ * This code is licensed under MIT license (see LICENSE for details)
+ */
+public class ZoneTransitionsTest {
+
+	private static final String[] ZONES = { "America/New_York", "Australia/Lord_Howe", "Pacific/Apia",
+			"Europe/London", "Asia/Kolkata", "America/St_Johns", "UTC", "+05:45", "UTC+05:30" };
+
+	private static final String[] PATTERNS = { "dd/MM/yyyy hh:mm:ss a Z", "uuuu-MM-dd'T'HH:mm:ss.SSSSSSSSSXXX VV",
+			"yy MMM d EEEE h:m:s.n", "G yyyy MMMM dd E zzzz z O x", "u D Q QQQ Y w e k K A N", "G y", "W F" };
+
+	@Test
+	public void testOffsetsMatchRules() {
+		for (String id : ZONES) {
+			ZoneId zone = ZoneId.of(id);
+			ZoneRules rules = zone.getRules();
+			ZoneTransitions transitions = new ZoneTransitions(zone, 1950, 2050);
+			for (long epochSecond : instants(zone, new Random(id.hashCode()))) {
+				Assert.assertEquals(transitions.getOffsetSeconds(epochSecond),
+						rules.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds(), id + " " + epochSecond);
+			}
+		}
+	}
+
+	@Test
+	public void testFormatMatchesZonedDateTime() {
+		ZonedFields fields = new ZonedFields();
+		for (String id : ZONES) {
+			ZoneId zone = ZoneId.of(id);
+			ZoneTransitions transitions = new ZoneTransitions(zone, 1950, 2050);
+			Random random = new Random(id.hashCode());
+			for (String pattern : PATTERNS) {
+				DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern, Locale.US);
+				for (long epochSecond : instants(zone, random)) {
+					int nano = random.nextInt(1000_000_000);
+					ZonedDateTime expected = Instant.ofEpochSecond(epochSecond, nano).atZone(zone);
+					Assert.assertEquals(formatter.format(fields.set(transitions, epochSecond, nano)),
+							formatter.format(expected), id + " " + pattern + " " + expected);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testPlanMatchesZonedDateTime() throws Exception {
+		String format = "dd/MM/yyyy hh:mm:ss a zzzz";
+		ConversionPlan plan = ConversionPlan.of(format, new String[] { "SGT" }, new String[] { "US" },
+				new String[] { "+05:30" });
+		DateTimeFormatter formatter = FormatterCache.get(format);
+		ZoneId offset = TimeConversionUtil.getTimeZoneForOffset("+05:30");
+		// the end of daylight saving time in New York: 1:30 am happens twice
+		ZonedDateTime dateTime = LocalDateTime.of(2024, 11, 3, 5, 30).atZone(ZoneOffset.UTC);
+		for (int hour = 0; hour < 2; hour++, dateTime = dateTime.plusHours(1)) {
+			String converted = plan.apply(dateTime);
+			Assert.assertTrue(
+					converted.contains(formatter.format(dateTime.withZoneSameInstant(ZoneId.of("Asia/Singapore")))));
+			Assert.assertTrue(converted.contains(formatter.format(dateTime.withZoneSameInstant(offset))));
+			Assert.assertTrue(converted.contains("America/New_York:"
+					+ formatter.format(dateTime.withZoneSameInstant(ZoneId.of("America/New_York"))) + "\n"), converted);
+		}
+	}
+
+	/**
+	 * @return random instants and the instants around every transition, some of
+	 *         them outside the years of the table
+	 */
+	private static List<Long> instants(ZoneId zone, Random random) {
+		List<Long> instants = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			// from 1800 to 2200
+			instants.add(-5364662400L + (long) (random.nextDouble() * 12622780800L));
+		}
+		ZoneOffsetTransition transition = zone.getRules().nextTransition(Instant.parse("1940-01-01T00:00:00Z"));
+		while (transition != null && transition.getInstant().isBefore(Instant.parse("2060-01-01T00:00:00Z"))) {
+			for (long delta = -2; delta <= 2; delta++) {
+				instants.add(transition.toEpochSecond() + delta);
+			}
+			transition = zone.getRules().nextTransition(transition.getInstant());
+		}
+		// the first and the last second of the table, and the seconds around it
+		for (long edge : new long[] { -631152000L, 2556144000L }) {
+			for (long delta = -2; delta <= 2; delta++) {
+				instants.add(edge + delta);
+			}
+		}
+		return instants;
+	}
+
+}